@@ -0,0 +1,62 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package android.database;
+
+import java.io.Closeable;
+
+/**
+ * Desktop stand-in for the Android cursor, limited to the methods used by the engine and the generated mappers.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public interface Cursor extends Closeable {
+
+	int getCount();
+
+	int getPosition();
+
+	boolean moveToPosition(int position);
+
+	boolean moveToFirst();
+
+	boolean moveToNext();
+
+	int getColumnCount();
+
+	int getColumnIndex(String columnName);
+
+	String[] getColumnNames();
+
+	boolean isNull(int columnIndex);
+
+	String getString(int columnIndex);
+
+	short getShort(int columnIndex);
+
+	int getInt(int columnIndex);
+
+	long getLong(int columnIndex);
+
+	float getFloat(int columnIndex);
+
+	double getDouble(int columnIndex);
+
+	boolean isClosed();
+
+	void close();
+
+}
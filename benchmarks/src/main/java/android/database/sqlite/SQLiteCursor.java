@@ -0,0 +1,171 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package android.database.sqlite;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import android.database.Cursor;
+
+/**
+ * Cursor over rows copied out of a JDBC result set, the way Android copies query results into a cursor window.
+ * Values keep the storage class SQLite returned them with, and the getters convert them as SQLite does.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class SQLiteCursor implements Cursor {
+	private final String[] columnNames;
+	private final List<Object[]> rows;
+	private int position = -1;
+	private boolean closed;
+
+	SQLiteCursor(final ResultSet resultSet) throws SQLException {
+		final ResultSetMetaData metadata = resultSet.getMetaData();
+		this.columnNames = new String[metadata.getColumnCount()];
+		for (int i = 0; i < columnNames.length; i++) {
+			columnNames[i] = metadata.getColumnLabel(i + 1);
+		}
+		this.rows = new ArrayList<Object[]>();
+		while (resultSet.next()) {
+			final Object[] row = new Object[columnNames.length];
+			for (int i = 0; i < row.length; i++) {
+				row[i] = resultSet.getObject(i + 1);
+			}
+			rows.add(row);
+		}
+	}
+
+	public int getCount() {
+		return rows.size();
+	}
+
+	public int getPosition() {
+		return position;
+	}
+
+	public boolean moveToPosition(final int newPosition) {
+		if (newPosition < 0 || newPosition >= rows.size()) {
+			position = (newPosition < 0 ? -1 : rows.size());
+			return false;
+		}
+		position = newPosition;
+		return true;
+	}
+
+	public boolean moveToFirst() {
+		return moveToPosition(0);
+	}
+
+	public boolean moveToNext() {
+		return moveToPosition(position + 1);
+	}
+
+	public int getColumnCount() {
+		return columnNames.length;
+	}
+
+	public int getColumnIndex(final String columnName) {
+		for (int i = 0; i < columnNames.length; i++) {
+			if (columnNames[i].equalsIgnoreCase(columnName)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public String[] getColumnNames() {
+		return columnNames;
+	}
+
+	public boolean isNull(final int columnIndex) {
+		return value(columnIndex) == null;
+	}
+
+	public String getString(final int columnIndex) {
+		final Object value = value(columnIndex);
+		return value == null ? null : value.toString();
+	}
+
+	public short getShort(final int columnIndex) {
+		return (short) getLong(columnIndex);
+	}
+
+	public int getInt(final int columnIndex) {
+		return (int) getLong(columnIndex);
+	}
+
+	public long getLong(final int columnIndex) {
+		final Object value = value(columnIndex);
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		if (value == null) {
+			return 0L;
+		}
+		try {
+			return Long.parseLong(value.toString().trim());
+		} catch (NumberFormatException e) {
+			return (long) parse(value.toString());
+		}
+	}
+
+	public float getFloat(final int columnIndex) {
+		return (float) getDouble(columnIndex);
+	}
+
+	public double getDouble(final int columnIndex) {
+		final Object value = value(columnIndex);
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+		return value == null ? 0.0 : parse(value.toString());
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	public void close() {
+		closed = true;
+	}
+
+	private Object value(final int columnIndex) {
+		if (closed || position < 0 || position >= rows.size()) {
+			throw new IllegalStateException("Cursor is not positioned on a row.");
+		}
+		return rows.get(position)[columnIndex];
+	}
+
+	/**
+	 * Converts text to a number the way SQLite casts it: the longest numeric prefix, or zero.
+	 */
+	private static double parse(final String text) {
+		final String trimmed = text.trim();
+		for (int end = trimmed.length(); end > 0; end--) {
+			try {
+				return Double.parseDouble(trimmed.substring(0, end));
+			} catch (NumberFormatException e) {
+				continue;
+			}
+		}
+		return 0.0;
+	}
+
+}
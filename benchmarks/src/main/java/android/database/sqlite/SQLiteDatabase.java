@@ -0,0 +1,314 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package android.database.sqlite;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import android.database.Cursor;
+
+/**
+ * Desktop stand-in for the Android database, on top of sqlite-jdbc.</br>
+ * 
+ * As on Android, one primary connection serves every statement and transactions lock the database for the
+ * thread that began them. Once write-ahead logging is enabled, queries issued outside a transaction run on one
+ * extra connection per thread instead, so readers do not wait for each other nor for the writer.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class SQLiteDatabase {
+	private final String path;
+	private final Connection connection;
+	private final ReentrantLock lock = new ReentrantLock(true);
+	private final List<Connection> readers = new ArrayList<Connection>();
+	private final ThreadLocal<Connection> reader = new ThreadLocal<Connection>();
+	private final List<Boolean> transactions = new ArrayList<Boolean>();
+	private boolean transactionFailed;
+	private volatile boolean writeAheadLogging;
+	private volatile boolean open;
+
+	/**
+	 * Desktop stand-in for the Android cursor factory. Factories are ignored.
+	 */
+	public interface CursorFactory {
+	}
+
+	private SQLiteDatabase(final String path) {
+		this.path = path;
+		this.connection = connect();
+		this.open = true;
+	}
+
+	/**
+	 * Opens the database at the given file path, creating it when needed. A null path opens an in-memory
+	 * database.
+	 * 
+	 * @param path	the file path, or null
+	 * @return	the database
+	 */
+	public static SQLiteDatabase openOrCreateDatabase(final String path) {
+		return new SQLiteDatabase(path);
+	}
+
+	private Connection connect() {
+		try {
+			Class.forName("org.sqlite.JDBC");
+			return DriverManager.getConnection("jdbc:sqlite:" + (path == null ? ":memory:" : path));
+		} catch (ClassNotFoundException e) {
+			throw new SQLiteException("sqlite-jdbc is not in the classpath", e);
+		} catch (SQLException e) {
+			throw new SQLiteException("Could not open " + path, e);
+		}
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public boolean isOpen() {
+		return open;
+	}
+
+	public boolean isReadOnly() {
+		return false;
+	}
+
+	public int getVersion() {
+		final Cursor cursor = rawQuery("PRAGMA user_version", null);
+		try {
+			return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	public void setVersion(final int version) {
+		execSQL("PRAGMA user_version = " + version);
+	}
+
+	/**
+	 * Switches the database to write-ahead logging, letting queries run on their own connections.
+	 * 
+	 * @return	true whether the journal mode was changed
+	 */
+	public boolean enableWriteAheadLogging() {
+		if (path == null) {
+			return false;
+		}
+		final Cursor cursor = rawQuery("PRAGMA journal_mode=WAL", null);
+		try {
+			writeAheadLogging = cursor.moveToFirst() && "wal".equalsIgnoreCase(cursor.getString(0));
+		} finally {
+			cursor.close();
+		}
+		return writeAheadLogging;
+	}
+
+	public void beginTransaction() {
+		lock.lock();
+		try {
+			if (transactions.isEmpty()) {
+				connection.setAutoCommit(false);
+				transactionFailed = false;
+			}
+		} catch (SQLException e) {
+			lock.unlock();
+			throw new SQLiteException(e.getMessage(), e);
+		}
+		transactions.add(Boolean.FALSE);
+	}
+
+	public void setTransactionSuccessful() {
+		checkTransaction();
+		transactions.set(transactions.size() - 1, Boolean.TRUE);
+	}
+
+	public void endTransaction() {
+		checkTransaction();
+		try {
+			if (!transactions.remove(transactions.size() - 1)) {
+				// A failed inner transaction rolls the outermost one back whatever it is marked, as on Android.
+				transactionFailed = true;
+			}
+			if (transactions.isEmpty()) {
+				if (!transactionFailed) {
+					connection.commit();
+				} else {
+					connection.rollback();
+				}
+				connection.setAutoCommit(true);
+			}
+		} catch (SQLException e) {
+			throw new SQLiteException(e.getMessage(), e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns true whether the current thread has a transaction in progress.
+	 * 
+	 * @return	a boolean
+	 */
+	public boolean inTransaction() {
+		return lock.isHeldByCurrentThread() && !transactions.isEmpty();
+	}
+
+	private void checkTransaction() {
+		if (!lock.isHeldByCurrentThread() || transactions.isEmpty()) {
+			throw new IllegalStateException("No transaction in progress on this thread.");
+		}
+	}
+
+	public Cursor rawQuery(final String sql, final String[] selectionArgs) {
+		final boolean primary = !writeAheadLogging || lock.isHeldByCurrentThread();
+		if (primary) {
+			lock.lock();
+		}
+		try {
+			final PreparedStatement statement = (primary ? connection : getReader()).prepareStatement(sql);
+			try {
+				if (selectionArgs != null) {
+					for (int i = 0; i < selectionArgs.length; i++) {
+						statement.setString(i + 1, selectionArgs[i]);
+					}
+				}
+				final ResultSet resultSet = statement.executeQuery();
+				try {
+					return new SQLiteCursor(resultSet);
+				} finally {
+					resultSet.close();
+				}
+			} finally {
+				statement.close();
+			}
+		} catch (SQLException e) {
+			throw new SQLiteException(e.getMessage() + ": " + sql, e);
+		} finally {
+			if (primary) {
+				lock.unlock();
+			}
+		}
+	}
+
+	private Connection getReader() {
+		Connection current = reader.get();
+		if (current == null) {
+			current = connect();
+			reader.set(current);
+			synchronized (readers) {
+				readers.add(current);
+			}
+		}
+		return current;
+	}
+
+	public void execSQL(final String sql) {
+		lock.lock();
+		try {
+			final Statement statement = connection.createStatement();
+			try {
+				statement.execute(sql);
+			} finally {
+				statement.close();
+			}
+		} catch (SQLException e) {
+			throw new SQLiteException(e.getMessage() + ": " + sql, e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void execSQL(final String sql, final Object[] bindArgs) {
+		lock.lock();
+		try {
+			final PreparedStatement statement = connection.prepareStatement(sql);
+			try {
+				for (int i = 0; i < bindArgs.length; i++) {
+					statement.setObject(i + 1, bindArgs[i]);
+				}
+				statement.execute();
+			} finally {
+				statement.close();
+			}
+		} catch (SQLException e) {
+			throw new SQLiteException(e.getMessage() + ": " + sql, e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int delete(final String table, final String whereClause, final String[] whereArgs) {
+		final SQLiteStatement statement = compileStatement("DELETE FROM " + table
+				+ (whereClause != null ? " WHERE " + whereClause : ""));
+		try {
+			if (whereArgs != null) {
+				for (int i = 0; i < whereArgs.length; i++) {
+					statement.bindString(i + 1, whereArgs[i]);
+				}
+			}
+			return statement.executeUpdateDelete();
+		} finally {
+			statement.close();
+		}
+	}
+
+	public SQLiteStatement compileStatement(final String sql) {
+		lock.lock();
+		try {
+			return new SQLiteStatement(this, connection.prepareStatement(sql), sql);
+		} catch (SQLException e) {
+			throw new SQLiteException(e.getMessage() + ": " + sql, e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	ReentrantLock getLock() {
+		return lock;
+	}
+
+	Connection getConnection() {
+		return connection;
+	}
+
+	public void close() {
+		lock.lock();
+		try {
+			open = false;
+			synchronized (readers) {
+				for (Connection current : readers) {
+					current.close();
+				}
+				readers.clear();
+			}
+			connection.close();
+		} catch (SQLException e) {
+			throw new SQLiteException(e.getMessage(), e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package android.database.sqlite;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase.CursorFactory;
+
+/**
+ * Desktop stand-in for the Android open helper. The database name is used as the file path; a null name opens
+ * an in-memory database.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public abstract class SQLiteOpenHelper {
+	private final String name;
+	private final int version;
+	private SQLiteDatabase database;
+
+	public SQLiteOpenHelper(final Context context, final String name, final CursorFactory factory, final int version) {
+		this.name = name;
+		this.version = version;
+	}
+
+	public synchronized SQLiteDatabase getWritableDatabase() {
+		if (database != null && database.isOpen()) {
+			return database;
+		}
+
+		final SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(name);
+		final int current = db.getVersion();
+		if (current != version) {
+			db.beginTransaction();
+			try {
+				if (current == 0) {
+					onCreate(db);
+				} else {
+					onUpgrade(db, current, version);
+				}
+				db.setVersion(version);
+				db.setTransactionSuccessful();
+			} finally {
+				db.endTransaction();
+			}
+		}
+		onOpen(db);
+		database = db;
+		return db;
+	}
+
+	public SQLiteDatabase getReadableDatabase() {
+		return getWritableDatabase();
+	}
+
+	public synchronized void close() {
+		if (database != null && database.isOpen()) {
+			database.close();
+		}
+		database = null;
+	}
+
+	public abstract void onCreate(SQLiteDatabase db);
+
+	public abstract void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion);
+
+	public void onOpen(final SQLiteDatabase db) {
+	}
+
+}
@@ -0,0 +1,162 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package android.database.sqlite;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+/**
+ * Desktop stand-in for the Android compiled statement, on top of a JDBC prepared statement of the primary
+ * connection.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class SQLiteStatement {
+	private final SQLiteDatabase database;
+	private final PreparedStatement statement;
+	private final String sql;
+
+	SQLiteStatement(final SQLiteDatabase database, final PreparedStatement statement, final String sql) {
+		this.database = database;
+		this.statement = statement;
+		this.sql = sql;
+	}
+
+	public void bindNull(final int index) {
+		try {
+			statement.setNull(index, Types.NULL);
+		} catch (SQLException e) {
+			throw failure(e);
+		}
+	}
+
+	public void bindLong(final int index, final long value) {
+		try {
+			statement.setLong(index, value);
+		} catch (SQLException e) {
+			throw failure(e);
+		}
+	}
+
+	public void bindDouble(final int index, final double value) {
+		try {
+			statement.setDouble(index, value);
+		} catch (SQLException e) {
+			throw failure(e);
+		}
+	}
+
+	public void bindString(final int index, final String value) {
+		try {
+			statement.setString(index, value);
+		} catch (SQLException e) {
+			throw failure(e);
+		}
+	}
+
+	public void clearBindings() {
+		try {
+			statement.clearParameters();
+		} catch (SQLException e) {
+			throw failure(e);
+		}
+	}
+
+	public void execute() {
+		executeUpdateDelete();
+	}
+
+	/**
+	 * Executes an UPDATE or DELETE statement.
+	 * 
+	 * @return	the number of changed rows
+	 */
+	public int executeUpdateDelete() {
+		database.getLock().lock();
+		try {
+			return statement.executeUpdate();
+		} catch (SQLException e) {
+			throw failure(e);
+		} finally {
+			database.getLock().unlock();
+		}
+	}
+
+	/**
+	 * Executes an INSERT statement.
+	 * 
+	 * @return	the row id of the inserted row, or -1 when no row was inserted
+	 */
+	public long executeInsert() {
+		database.getLock().lock();
+		try {
+			if (statement.executeUpdate() == 0) {
+				return -1;
+			}
+			final Statement query = database.getConnection().createStatement();
+			try {
+				final ResultSet resultSet = query.executeQuery("SELECT last_insert_rowid()");
+				try {
+					return resultSet.next() ? resultSet.getLong(1) : -1;
+				} finally {
+					resultSet.close();
+				}
+			} finally {
+				query.close();
+			}
+		} catch (SQLException e) {
+			throw failure(e);
+		} finally {
+			database.getLock().unlock();
+		}
+	}
+
+	public long simpleQueryForLong() {
+		database.getLock().lock();
+		try {
+			final ResultSet resultSet = statement.executeQuery();
+			try {
+				if (!resultSet.next()) {
+					throw new SQLiteDoneException("No rows: " + sql);
+				}
+				return resultSet.getLong(1);
+			} finally {
+				resultSet.close();
+			}
+		} catch (SQLException e) {
+			throw failure(e);
+		} finally {
+			database.getLock().unlock();
+		}
+	}
+
+	public void close() {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			throw failure(e);
+		}
+	}
+
+	private SQLiteException failure(final SQLException e) {
+		return new SQLiteException(e.getMessage() + ": " + sql, e);
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.alienlabz.activerecord.ConcurrencyMode;
+import com.alienlabz.activerecord.Configuration;
+import com.alienlabz.activerecord.DBOpenHelper;
+import com.alienlabz.activerecord.Model;
+import com.alienlabz.util.Beans;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+
+/**
+ * Temporary database file set up for one benchmark trial, with the engine wired to it through Guice the way
+ * ActiveRecordModule wires it on a device.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class BenchmarkDatabase {
+	private static final long DAY = 24L * 60 * 60 * 1000;
+
+	private final File file;
+
+	private BenchmarkDatabase(final ConcurrencyMode mode, final Class<?>... models) throws IOException {
+		this.file = File.createTempFile("activerecord-benchmark", ".sqlite");
+		if (!file.delete()) {
+			throw new IOException("Could not prepare " + file);
+		}
+
+		final Configuration configuration = new Configuration();
+		configuration.setConcurrencyMode(mode);
+		final DBOpenHelper helper = new DBOpenHelper(new Context(), file.getPath(), null, 1,
+				mode == ConcurrencyMode.WAL) {
+
+			@Override
+			public void onCreate(final SQLiteDatabase db) {
+				for (Class<?> model : models) {
+					db.execSQL(Model.getSQLCreateTable(model));
+					for (String index : Model.getSQLCreateIndexes(model)) {
+						db.execSQL(index);
+					}
+				}
+			}
+
+		};
+
+		Beans.setInjector(Guice.createInjector(new AbstractModule() {
+
+			@Override
+			protected void configure() {
+				bind(Configuration.class).toInstance(configuration);
+				bind(DBOpenHelper.class).toInstance(helper);
+			}
+
+		}));
+	}
+
+	/**
+	 * Creates an empty database with the tables of the given models.
+	 * 
+	 * @param mode	the concurrency mode
+	 * @param models	the model classes
+	 * @return	the database
+	 * @throws IOException	when the temporary file cannot be created
+	 */
+	public static BenchmarkDatabase open(final ConcurrencyMode mode, final Class<?>... models) throws IOException {
+		return new BenchmarkDatabase(mode, models);
+	}
+
+	/**
+	 * Closes the database, lets its writer thread end and deletes its files.
+	 */
+	public void close() {
+		Model.closeDatabase();
+		for (String suffix : new String[] { "", "-wal", "-shm", "-journal" }) {
+			new File(file.getPath() + suffix).delete();
+		}
+	}
+
+	/**
+	 * Creates unsaved contacts with deterministic values.
+	 * 
+	 * @param count	the number of contacts
+	 * @param seed	the random seed
+	 * @return	the contacts
+	 */
+	public static List<Contact> contacts(final int count, final long seed) {
+		final Random random = new Random(seed);
+		final List<Contact> contacts = new ArrayList<Contact>(count);
+		for (int i = 0; i < count; i++) {
+			final Contact contact = new Contact();
+			contact.name = "Contact " + random.nextInt(1000000);
+			contact.email = "contact" + i + "@alienlabz.com";
+			contact.age = random.nextInt(100);
+			contact.score = random.nextDouble() * 1000;
+			contact.active = random.nextBoolean();
+			contact.birth = new Date(random.nextInt(20000) * DAY);
+			contacts.add(contact);
+		}
+		return contacts;
+	}
+
+	/**
+	 * Creates unsaved contacts mapped through reflection, with the same values as {@link #contacts(int, long)}.
+	 * 
+	 * @param count	the number of contacts
+	 * @param seed	the random seed
+	 * @return	the contacts
+	 */
+	public static List<ReflectiveContact> reflectiveContacts(final int count, final long seed) {
+		final List<ReflectiveContact> contacts = new ArrayList<ReflectiveContact>(count);
+		for (Contact source : contacts(count, seed)) {
+			final ReflectiveContact contact = new ReflectiveContact();
+			contact.setName(source.name);
+			contact.setEmail(source.email);
+			contact.setAge(source.age);
+			contact.setScore(source.score);
+			contact.setActive(source.active);
+			contact.setBirth(source.birth);
+			contacts.add(contact);
+		}
+		return contacts;
+	}
+
+	/**
+	 * Returns the date of the given day since the epoch.
+	 * 
+	 * @param day	the day
+	 * @return	the date
+	 */
+	public static Date day(final int day) {
+		return new Date(day * DAY);
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.alienlabz.activerecord.ColumnMetadata;
+import com.alienlabz.activerecord.ConcurrencyMode;
+import com.alienlabz.activerecord.DatabaseAccess;
+import com.alienlabz.activerecord.DatabaseWork;
+import com.alienlabz.activerecord.EntityMetadata;
+import com.alienlabz.activerecord.Model;
+import com.alienlabz.util.Beans;
+
+/**
+ * Parameter binding with each value's native storage class against binding every value as a String, in rows
+ * per second. Both variants run the same compiled INSERT inside one transaction.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BindingBenchmark {
+	private static final int ROWS = 1000;
+
+	private BenchmarkDatabase database;
+	private ColumnMetadata[] columns;
+	private String sql;
+	private List<Contact> contacts;
+
+	@Setup(Level.Trial)
+	public void open() throws IOException {
+		database = BenchmarkDatabase.open(ConcurrencyMode.SERIALIZED, Contact.class);
+		columns = EntityMetadata.of(Contact.class).getColumns();
+		contacts = BenchmarkDatabase.contacts(ROWS, 6);
+
+		final StringBuilder names = new StringBuilder();
+		final StringBuilder values = new StringBuilder();
+		for (int i = 0; i < columns.length; i++) {
+			names.append(i == 0 ? "" : ",").append(columns[i].getName());
+			values.append(i == 0 ? "?" : ",?");
+		}
+		sql = "INSERT INTO Contact (" + names + ") VALUES (" + values + ")";
+	}
+
+	@Setup(Level.Iteration)
+	public void clear() {
+		Model.executeSQL("DELETE FROM Contact");
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		database.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void typed() {
+		insert(true);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void strings() {
+		insert(false);
+	}
+
+	private void insert(final boolean typed) {
+		Beans.getBean(DatabaseAccess.class).write(new DatabaseWork<Void>() {
+
+			public Void execute(final SQLiteDatabase db) {
+				final SQLiteStatement statement = db.compileStatement(sql);
+				db.beginTransaction();
+				try {
+					for (Contact contact : contacts) {
+						statement.clearBindings();
+						for (int i = 0; i < columns.length; i++) {
+							final Object value = columns[i].get(contact);
+							if (typed) {
+								columns[i].getConverter().bind(statement, i + 1, value);
+							} else {
+								final String text = columns[i].getConverter().write(value);
+								if (text == null) {
+									statement.bindNull(i + 1);
+								} else {
+									statement.bindString(i + 1, text);
+								}
+							}
+						}
+						statement.executeInsert();
+					}
+					db.setTransactionSuccessful();
+				} finally {
+					db.endTransaction();
+					statement.close();
+				}
+				return null;
+			}
+
+		});
+	}
+
+}
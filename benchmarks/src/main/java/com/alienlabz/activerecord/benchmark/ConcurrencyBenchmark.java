@@ -0,0 +1,134 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alienlabz.activerecord.ConcurrencyMode;
+import com.alienlabz.activerecord.Model;
+
+/**
+ * Read throughput of concurrent loads by id, with and without a writer saving batches in the background,
+ * under each concurrency mode.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrencyBenchmark {
+	private static final int ROWS = 10000;
+
+	@Param({ "SERIALIZED", "WAL" })
+	public ConcurrencyMode mode;
+
+	@Param({ "false", "true" })
+	public boolean writer;
+
+	private BenchmarkDatabase database;
+	private Thread writerThread;
+	private volatile boolean running;
+
+	/**
+	 * Random ids, one generator per benchmark thread.
+	 */
+	@State(Scope.Thread)
+	public static class Ids {
+		private final Random random = new Random(Thread.currentThread().getId());
+
+		int next() {
+			return random.nextInt(ROWS) + 1;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void open() throws IOException {
+		database = BenchmarkDatabase.open(mode, Contact.class);
+		Model.saveAll(BenchmarkDatabase.contacts(ROWS, 7));
+		if (writer) {
+			running = true;
+			writerThread = new Thread(new Runnable() {
+
+				public void run() {
+					long seed = 8;
+					while (running) {
+						final List<Contact> batch = BenchmarkDatabase.contacts(100, seed++);
+						Model.saveAll(batch);
+					}
+				}
+
+			}, "benchmark-writer");
+			writerThread.setDaemon(true);
+			writerThread.start();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void close() throws InterruptedException {
+		if (writerThread != null) {
+			running = false;
+			writerThread.join();
+		}
+		database.close();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public Contact load1(final Ids ids) {
+		return Model.load(Contact.class, ids.next());
+	}
+
+	@Benchmark
+	@Threads(2)
+	public Contact load2(final Ids ids) {
+		return Model.load(Contact.class, ids.next());
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Contact load4(final Ids ids) {
+		return Model.load(Contact.class, ids.next());
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Contact load8(final Ids ids) {
+		return Model.load(Contact.class, ids.next());
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alienlabz.activerecord.ColumnMetadata;
+import com.alienlabz.activerecord.ConcurrencyMode;
+import com.alienlabz.activerecord.EntityMetadata;
+import com.alienlabz.activerecord.Model;
+
+/**
+ * Dates stored as text against dates stored as epoch milliseconds: mapping every row, and an indexed range
+ * scan over one month.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DateStorageBenchmark {
+	private static final int ROWS = 10000;
+
+	private BenchmarkDatabase database;
+	private String[] textRange;
+	private String[] epochRange;
+
+	@Setup(Level.Trial)
+	public void open() throws IOException {
+		database = BenchmarkDatabase.open(ConcurrencyMode.SERIALIZED, TextDateEvent.class, EpochDateEvent.class);
+		final List<TextDateEvent> texts = new ArrayList<TextDateEvent>(ROWS);
+		final List<EpochDateEvent> epochs = new ArrayList<EpochDateEvent>(ROWS);
+		for (int i = 0; i < ROWS; i++) {
+			final TextDateEvent text = new TextDateEvent();
+			text.at = BenchmarkDatabase.day(i);
+			text.kind = i % 7;
+			texts.add(text);
+			final EpochDateEvent epoch = new EpochDateEvent();
+			epoch.at = BenchmarkDatabase.day(i);
+			epoch.kind = i % 7;
+			epochs.add(epoch);
+		}
+		Model.saveAll(texts);
+		Model.saveAll(epochs);
+
+		textRange = range(EntityMetadata.of(TextDateEvent.class).getColumn("at"));
+		epochRange = range(EntityMetadata.of(EpochDateEvent.class).getColumn("at"));
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		database.close();
+	}
+
+	@Benchmark
+	public List<TextDateEvent> textMapAll() {
+		return Model.findAll(TextDateEvent.class);
+	}
+
+	@Benchmark
+	public List<EpochDateEvent> epochMapAll() {
+		return Model.findAll(EpochDateEvent.class);
+	}
+
+	@Benchmark
+	public List<TextDateEvent> textRange() {
+		return Model.where(TextDateEvent.class, "at BETWEEN ? AND ?", textRange);
+	}
+
+	@Benchmark
+	public List<EpochDateEvent> epochRange() {
+		return Model.where(EpochDateEvent.class, "at BETWEEN ? AND ?", epochRange);
+	}
+
+	private static String[] range(final ColumnMetadata column) {
+		return new String[] { column.toParameter(BenchmarkDatabase.day(ROWS / 2)),
+				column.toParameter(BenchmarkDatabase.day(ROWS / 2 + 30)) };
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alienlabz.activerecord.ConcurrencyMode;
+import com.alienlabz.activerecord.Model;
+
+/**
+ * Insert throughput, in rows per second, of single saves and of batched saves.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertBenchmark {
+	private static final int BATCH = 1000;
+
+	@Param({ "SERIALIZED", "WAL" })
+	public ConcurrencyMode mode;
+
+	private BenchmarkDatabase database;
+	private List<Contact> batch;
+	private Contact single;
+
+	@Setup(Level.Trial)
+	public void open() throws IOException {
+		database = BenchmarkDatabase.open(mode, Contact.class);
+	}
+
+	@Setup(Level.Iteration)
+	public void clear() {
+		Model.executeSQL("DELETE FROM Contact");
+		single = BenchmarkDatabase.contacts(1, 1).get(0);
+	}
+
+	@Setup(Level.Invocation)
+	public void prepareBatch() {
+		batch = BenchmarkDatabase.contacts(BATCH, 2);
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		database.close();
+	}
+
+	@Benchmark
+	public void saveOne() {
+		single._id = null;
+		single.save();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void saveAll() {
+		Model.saveAll(batch);
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.alienlabz.activerecord.ConcurrencyMode;
+import com.alienlabz.activerecord.Model;
+
+/**
+ * Row mapping through the mapper generated at compile time against mapping through reflection, in rows per
+ * second, over two tables holding the same values.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+	private static final int ROWS = 10000;
+
+	private BenchmarkDatabase database;
+
+	@Setup(Level.Trial)
+	public void open() throws IOException {
+		database = BenchmarkDatabase.open(ConcurrencyMode.SERIALIZED, Contact.class, ReflectiveContact.class);
+		Model.saveAll(BenchmarkDatabase.contacts(ROWS, 5));
+		Model.saveAll(BenchmarkDatabase.reflectiveContacts(ROWS, 5));
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		database.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public List<Contact> generated() {
+		return Model.findAll(Contact.class);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public List<ReflectiveContact> reflection() {
+		return Model.findAll(ReflectiveContact.class);
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.alienlabz.activerecord.ConcurrencyMode;
+import com.alienlabz.activerecord.Model;
+import com.alienlabz.activerecord.ModelCursor;
+
+/**
+ * Read paths over a table of {@value #ROWS} contacts: bulk selects in rows per second, and single-row loads
+ * and counts in microseconds per call.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+	static final int ROWS = 10000;
+
+	private BenchmarkDatabase database;
+	private Random random;
+
+	@Setup(Level.Trial)
+	public void open() throws IOException {
+		database = BenchmarkDatabase.open(ConcurrencyMode.SERIALIZED, Contact.class);
+		Model.saveAll(BenchmarkDatabase.contacts(ROWS, 3));
+		random = new Random(4);
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		database.close();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(ROWS)
+	public void findAll(final Blackhole blackhole) {
+		final List<Contact> contacts = Model.findAll(Contact.class);
+		blackhole.consume(contacts);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	@OperationsPerInvocation(ROWS)
+	public void iterateReusingInstance(final Blackhole blackhole) {
+		final ModelCursor<Contact> contacts = Model.iterateAll(Contact.class).reuseInstance();
+		try {
+			for (Contact contact : contacts) {
+				blackhole.consume(contact.age);
+			}
+		} finally {
+			contacts.close();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public Contact loadById() {
+		return Model.load(Contact.class, random.nextInt(ROWS) + 1);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int count() {
+		return Model.count(Contact.class);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int countWhere() {
+		return Model.count(Contact.class, "age > ?", "50");
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public List<Contact> firstPage() {
+		return Model.query(Contact.class).where("active = ?", "1").orderBy("age").limit(20).list();
+	}
+
+}
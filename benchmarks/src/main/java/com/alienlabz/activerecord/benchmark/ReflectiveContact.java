@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.benchmark;
+
+import java.util.Date;
+
+import com.alienlabz.activerecord.Model;
+
+/**
+ * Same columns as {@link Contact}, but its private fields keep the processor from generating a mapper, so rows
+ * are mapped through reflection.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class ReflectiveContact extends Model {
+	private String name;
+	private String email;
+	private Integer age;
+	private Double score;
+	private Boolean active;
+	private Date birth;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(final String name) {
+		this.name = name;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	public void setEmail(final String email) {
+		this.email = email;
+	}
+
+	public Integer getAge() {
+		return age;
+	}
+
+	public void setAge(final Integer age) {
+		this.age = age;
+	}
+
+	public Double getScore() {
+		return score;
+	}
+
+	public void setScore(final Double score) {
+		this.score = score;
+	}
+
+	public Boolean getActive() {
+		return active;
+	}
+
+	public void setActive(final Boolean active) {
+		this.active = active;
+	}
+
+	public Date getBirth() {
+		return birth;
+	}
+
+	public void setBirth(final Date birth) {
+		this.birth = birth;
+	}
+
+}
@@ -0,0 +1,37 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.benchmark;
+
+import java.util.Date;
+
+import com.alienlabz.activerecord.DateStorage;
+import com.alienlabz.activerecord.Model;
+import com.alienlabz.activerecord.annotation.Index;
+import com.alienlabz.activerecord.annotation.StoreDateAs;
+
+/**
+ * Benchmark model whose date is stored as text.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class TextDateEvent extends Model {
+	@Index
+	@StoreDateAs(DateStorage.TEXT)
+	public Date at;
+	public Integer kind;
+
+}
@@ -0,0 +1,48 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.util;
+
+import roboguice.event.EventManager;
+
+import com.google.inject.Injector;
+
+/**
+ * Desktop stand-in for the AlienDroid bean lookup, which needs an Android application. Beans are taken from
+ * the injector set up by the benchmark.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public final class Beans {
+	private static volatile Injector injector;
+	private static final EventManager eventManager = new EventManager();
+
+	private Beans() {
+	}
+
+	public static void setInjector(final Injector current) {
+		injector = current;
+	}
+
+	public static <T> T getBean(final Class<T> type) {
+		return injector.getInstance(type);
+	}
+
+	public static EventManager getEventManager() {
+		return eventManager;
+	}
+
+}
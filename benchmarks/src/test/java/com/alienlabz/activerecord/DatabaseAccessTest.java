@@ -0,0 +1,127 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.alienlabz.activerecord.model.Person;
+import com.alienlabz.util.Beans;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+
+/**
+ * Tests of the write path in {@link ConcurrencyMode#WAL} mode: nested transactions and the writer thread.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class DatabaseAccessTest {
+	private static final String WRITER = "ActiveRecord-Writer";
+
+	private TestDatabase database;
+
+	@Before
+	public void setUp() throws Exception {
+		final Configuration configuration = TestDatabase.configuration();
+		configuration.setConcurrencyMode(ConcurrencyMode.WAL);
+		database = TestDatabase.create(configuration).open(1);
+	}
+
+	@After
+	public void tearDown() {
+		database.close();
+	}
+
+	@Test
+	public void failedInnerTransactionRollsBackOuter() {
+		Beans.getBean(DatabaseAccess.class).write(new DatabaseWork<Void>() {
+
+			public Void execute(final SQLiteDatabase db) {
+				db.beginTransaction();
+				try {
+					new Person("Ana", 30, "Recife").save();
+					db.beginTransaction();
+					try {
+						new Person("Bia", 20, "Olinda").save();
+					} finally {
+						db.endTransaction();
+					}
+					db.setTransactionSuccessful();
+				} finally {
+					db.endTransaction();
+				}
+				return null;
+			}
+
+		});
+		assertEquals(0, Model.count(Person.class));
+	}
+
+	@Test
+	public void writerThreadEndsWhenDatabaseIsClosed() throws Exception {
+		new Person("Ana", 30, "Recife").save();
+		assertTrue(isWriterRunning());
+
+		Model.closeDatabase();
+		for (int i = 0; i < 100 && isWriterRunning(); i++) {
+			Thread.sleep(10);
+		}
+		assertFalse(isWriterRunning());
+
+		new Person("Bia", 20, "Olinda").save();
+		assertEquals(2, Model.count(Person.class));
+	}
+
+	@Test
+	public void unavailableWriteAheadLoggingFallsBackToSerialized() {
+		final Configuration configuration = TestDatabase.configuration();
+		configuration.setConcurrencyMode(ConcurrencyMode.WAL);
+		final DBOpenHelper memory = new DBOpenHelper(new Context(), null, null, 1, true);
+		Beans.setInjector(Guice.createInjector(new AbstractModule() {
+
+			@Override
+			protected void configure() {
+				bind(Configuration.class).toInstance(configuration);
+				bind(DBOpenHelper.class).toInstance(memory);
+			}
+
+		}));
+
+		new Person("Ana", 30, "Recife").save();
+		assertEquals(ConcurrencyMode.SERIALIZED, Beans.getBean(DatabaseAccess.class).getMode());
+		assertFalse(isWriterRunning());
+		assertEquals(1, Model.count(Person.class));
+	}
+
+	private static boolean isWriterRunning() {
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (WRITER.equals(thread.getName()) && thread.isAlive()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
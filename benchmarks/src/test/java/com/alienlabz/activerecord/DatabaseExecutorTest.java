@@ -0,0 +1,200 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alienlabz.activerecord.model.Person;
+import com.alienlabz.util.Beans;
+
+/**
+ * Tests of the asynchronous API: bounded lanes, cancellation and callbacks.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class DatabaseExecutorTest {
+	private static final int ROWS = 200;
+
+	private TestDatabase database;
+
+	@Before
+	public void setUp() throws Exception {
+		database = TestDatabase.open();
+		final List<Person> people = new ArrayList<Person>();
+		for (int i = 0; i < ROWS; i++) {
+			people.add(new Person("Person " + i, i, "Recife"));
+		}
+		Model.saveAll(people);
+	}
+
+	@After
+	public void tearDown() {
+		database.close();
+	}
+
+	@Test
+	public void fullLaneRejectsSubmissions() throws Exception {
+		final DatabaseExecutor executor = new DatabaseExecutor(1, 1);
+		final CountDownLatch running = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		try {
+			executor.read(new DatabaseCall<Void>() {
+
+				public Void call() throws Exception {
+					running.countDown();
+					release.await();
+					return null;
+				}
+
+			}, null);
+			assertTrue(running.await(5, TimeUnit.SECONDS));
+			final Future<Integer> queued = executor.read(constant(1), null);
+
+			try {
+				executor.read(constant(2), null);
+				fail("A full lane must reject the operation.");
+			} catch (RejectedExecutionException e) {
+				// expected
+			}
+			final Future<Integer> write = executor.write(constant(3), null);
+
+			release.countDown();
+			assertEquals(Integer.valueOf(1), queued.get(5, TimeUnit.SECONDS));
+			assertEquals(Integer.valueOf(3), write.get(5, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void cancellingStopsTheCursorAndReleasesTheConnection() throws Exception {
+		final CountDownLatch reading = new CountDownLatch(1);
+		final CountDownLatch cancelled = new CountDownLatch(1);
+		final AtomicInteger read = new AtomicInteger();
+
+		final Future<Integer> future = Beans.getBean(DatabaseExecutor.class).read(new DatabaseCall<Integer>() {
+
+			public Integer call() throws Exception {
+				for (Person person : track(Model.iterate(Person.class, null))) {
+					if (read.incrementAndGet() == 1) {
+						reading.countDown();
+						cancelled.await();
+					}
+				}
+				return read.get();
+			}
+
+		}, null);
+
+		assertTrue(reading.await(5, TimeUnit.SECONDS));
+		assertTrue(future.cancel(false));
+		cancelled.countDown();
+
+		final ConnectionManager connections = Beans.getBean(ConnectionManager.class);
+		final long deadline = System.currentTimeMillis() + 5000;
+		Model.closeDatabase();
+		while (connections.isOpen() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertFalse("The cancelled cursor must release the connection.", connections.isOpen());
+		assertEquals(1, read.get());
+	}
+
+	@Test
+	public void callbackReceivesResultOnDatabaseThread() throws Exception {
+		final CountDownLatch done = new CountDownLatch(1);
+		final AtomicReference<List<Person>> result = new AtomicReference<List<Person>>();
+		final AtomicReference<String> thread = new AtomicReference<String>();
+
+		Model.query(Person.class).where("age < ?", "5").orderBy("age").listAsync(new Callback<List<Person>>() {
+
+			public void onSuccess(final List<Person> people) {
+				result.set(people);
+				thread.set(Thread.currentThread().getName());
+				done.countDown();
+			}
+
+			public void onFailure(final Throwable error) {
+				done.countDown();
+			}
+
+		});
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(5, result.get().size());
+		assertEquals("Person 0", result.get().get(0).name);
+		assertTrue(thread.get(), thread.get().startsWith("ActiveRecord-AsyncReader"));
+	}
+
+	@Test
+	public void callbackReceivesFailure() throws Exception {
+		final CountDownLatch done = new CountDownLatch(1);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		Model.query(Person.class).where("unknown = ?", "1").listAsync(new Callback<List<Person>>() {
+
+			public void onSuccess(final List<Person> people) {
+				done.countDown();
+			}
+
+			public void onFailure(final Throwable error) {
+				failure.set(error);
+				done.countDown();
+			}
+
+		});
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertTrue(String.valueOf(failure.get()), failure.get() instanceof RuntimeException);
+	}
+
+	@Test
+	public void saveAsyncRunsOnWriteLane() throws Exception {
+		final Person person = new Person("Async", 99, "Olinda");
+		assertNull(person.saveAsync().get(5, TimeUnit.SECONDS));
+		assertEquals(1, Model.count(Person.class, "name = ?", "Async"));
+	}
+
+	private static DatabaseCall<Integer> constant(final int value) {
+		return new DatabaseCall<Integer>() {
+
+			public Integer call() {
+				return value;
+			}
+
+		};
+	}
+
+}
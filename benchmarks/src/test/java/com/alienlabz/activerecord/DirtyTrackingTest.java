@@ -0,0 +1,206 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import roboguice.event.EventListener;
+
+import com.alienlabz.activerecord.event.TableChanged;
+import com.alienlabz.activerecord.model.Article;
+import com.alienlabz.activerecord.model.Person;
+import com.alienlabz.activerecord.model.Product;
+import com.alienlabz.activerecord.model.Tag;
+import com.alienlabz.util.Beans;
+
+/**
+ * Tests of the dirty tracking of saved models.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class DirtyTrackingTest {
+	private final List<String> changedTables = new ArrayList<String>();
+	private final EventListener<TableChanged> listener = new EventListener<TableChanged>() {
+		@Override
+		public void onEvent(final TableChanged event) {
+			changedTables.add(event.getTableName());
+		}
+	};
+	private TestDatabase database;
+
+	@Before
+	public void setUp() throws Exception {
+		database = TestDatabase.open();
+		Beans.getEventManager().registerObserver(TableChanged.class, listener);
+	}
+
+	@After
+	public void tearDown() {
+		Beans.getEventManager().unregisterObserver(TableChanged.class, listener);
+		database.close();
+	}
+
+	@Test
+	public void loadedModelIsClean() {
+		new Person("Ana", 30, "Recife").save();
+
+		final Person person = Model.load(Person.class, 1);
+		assertFalse(person.isDirty());
+		assertTrue(person.getChangedFields().isEmpty());
+
+		person.age = 31;
+		assertTrue(person.isDirty());
+		assertEquals(Arrays.asList("age"), person.getChangedFields());
+	}
+
+	@Test
+	public void newModelIsDirty() {
+		final Person person = new Person("Ana", 30, "Recife");
+		assertTrue(person.isDirty());
+		assertTrue(person.getChangedFields().contains("name"));
+
+		person.save();
+		assertFalse(person.isDirty());
+	}
+
+	@Test
+	public void unchangedSaveWritesNothing() {
+		new Person("Ana", 30, "Recife").save();
+		final Person person = Model.load(Person.class, 1);
+		changedTables.clear();
+
+		person.save();
+		assertTrue(changedTables.isEmpty());
+	}
+
+	@Test
+	public void onlyChangedColumnsAreWritten() {
+		new Person("Ana", 30, "Recife").save();
+		final Person person = Model.load(Person.class, 1);
+		Model.executeSQL("UPDATE Person SET city = ? WHERE _id = ?", "Olinda", 1);
+
+		person.age = 31;
+		changedTables.clear();
+		person.save();
+
+		assertEquals(Arrays.asList("Person"), changedTables);
+		final Person stored = Model.load(Person.class, 1);
+		assertEquals(Integer.valueOf(31), stored.age);
+		assertEquals("Olinda", stored.city);
+	}
+
+	@Test
+	public void unchangedLinksAreNotRewritten() {
+		final Tag java = new Tag("java");
+		final Tag android = new Tag("android");
+		Model.saveAll(Arrays.asList(java, android));
+		final Article article = new Article();
+		article.title = "Hello";
+		article.tags = new LinkedList<Tag>(Arrays.asList(java));
+		article.save();
+
+		changedTables.clear();
+		article.save();
+		assertTrue(changedTables.isEmpty());
+
+		article.tags.add(android);
+		article.save();
+		assertEquals(Arrays.asList("Article_tags"), changedTables);
+		assertEquals(2, database.queryForLong("SELECT count(*) FROM Article_tags"));
+
+		changedTables.clear();
+		article.tags.remove(java);
+		article.save();
+		assertEquals(Arrays.asList("Article_tags"), changedTables);
+		assertEquals(1, database.queryForLong("SELECT count(*) FROM Article_tags WHERE target_id = ?",
+				String.valueOf(android._id)));
+		assertEquals(1, database.queryForLong("SELECT count(*) FROM Article_tags"));
+	}
+
+	@Test
+	public void failedSaveAllCanBeRetried() {
+		new Person("Ana", 30, "Recife").save();
+		final Product pen = new Product("P1", "Pen", 1.5);
+		pen.barcode = 42L;
+		pen.save();
+
+		final Person person = Model.load(Person.class, 1);
+		person.age = 31;
+		final Person newPerson = new Person("Bia", 20, "Olinda");
+		final Product ink = new Product("P2", "Ink", 3.0);
+		ink.barcode = 42L;
+		try {
+			Model.saveAll(Arrays.<Model> asList(person, newPerson, ink));
+			fail("The barcode is unique.");
+		} catch (RuntimeException e) {
+			// expected
+		}
+
+		assertTrue(person.isDirty());
+		assertNull(newPerson._id);
+		assertNull(ink._id);
+		assertEquals(Integer.valueOf(30), Model.load(Person.class, 1).age);
+
+		ink.barcode = 43L;
+		Model.saveAll(Arrays.<Model> asList(person, newPerson, ink));
+		assertEquals(Integer.valueOf(31), Model.load(Person.class, 1).age);
+		assertEquals("Bia", Model.load(Person.class, newPerson._id).name);
+		assertEquals(2, Model.count(Product.class));
+	}
+
+	@Test
+	public void failedChunkKeepsCommittedChunks() throws Exception {
+		database.close();
+		final Configuration configuration = TestDatabase.configuration();
+		configuration.setBatchChunkSize(2);
+		database = TestDatabase.create(configuration).open(1);
+
+		final Product pen = new Product("P1", "Pen", 1.5);
+		final Product ink = new Product("P2", "Ink", 3.0);
+		final Product pad = new Product("P3", "Pad", 2.0);
+		final Product copy = new Product("P4", "Pen copy", 1.5);
+		pen.barcode = 42L;
+		copy.barcode = 42L;
+		try {
+			Model.saveAll(Arrays.asList(pen, ink, pad, copy));
+			fail("The barcode is unique.");
+		} catch (RuntimeException e) {
+			// expected
+		}
+
+		assertNotNull(pen._id);
+		assertNotNull(ink._id);
+		assertNull(pad._id);
+		assertNull(copy._id);
+		assertEquals(2, Model.count(Product.class));
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alienlabz.activerecord.model.Note;
+
+/**
+ * Tests of the full-text search.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class FullTextSearchTest {
+	private TestDatabase database;
+
+	@Before
+	public void setUp() throws Exception {
+		database = TestDatabase.open();
+	}
+
+	@After
+	public void tearDown() {
+		database.close();
+	}
+
+	@Test
+	public void resultsAreOrderedByNumberOfMatches() {
+		final StringBuilder padding = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			padding.append("word ");
+		}
+		Model.saveAll(Arrays.asList(new Note("one", "apple"),
+				new Note("two", padding + "apple apple"),
+				new Note("three", "apple apple apple"),
+				new Note("none", "pear")));
+
+		assertEquals(Arrays.asList("three", "two", "one"), titles(Model.search(Note.class, "apple")));
+	}
+
+	@Test
+	public void searchFollowsUpdatesAndDeletes() {
+		final Note note = new Note("fruit", "apple");
+		note.save();
+		assertEquals(1, Model.search(Note.class, "apple").size());
+
+		note.body = "pear";
+		note.save();
+		assertEquals(0, Model.search(Note.class, "apple").size());
+		assertEquals(1, Model.search(Note.class, "pear").size());
+
+		note.delete();
+		assertEquals(0, Model.search(Note.class, "pear").size());
+	}
+
+	@Test
+	public void updatesOfOtherColumnsDoNotRewriteSearchTable() {
+		new Note("fruit", "apple").save();
+
+		final long before = database.queryForLong("SELECT total_changes()");
+		Model.executeSQL("UPDATE Note SET pinned = 1");
+		assertEquals(1, database.queryForLong("SELECT total_changes()") - before);
+		assertEquals(1, Model.search(Note.class, "apple").size());
+	}
+
+	private static List<String> titles(final List<Note> notes) {
+		final List<String> titles = new ArrayList<String>();
+		for (Note note : notes) {
+			titles.add(note.title);
+		}
+		return titles;
+	}
+
+}
@@ -0,0 +1,74 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests of the grouping and bounding of the histograms.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class HistogramMetricsTest {
+
+	@Test
+	public void inlineValuesShareOneTemplate() {
+		final HistogramMetrics metrics = new HistogramMetrics();
+		for (int i = 0; i < 100; i++) {
+			metrics.onOperation(OperationType.QUERY, "Person", "SELECT * FROM Person WHERE age=" + i
+					+ " AND name='O''Neil " + i + "' AND _id IN (" + i + ", " + (i + 1) + ")", 0, 1000, 1, 0);
+		}
+
+		final List<HistogramMetrics.Histogram> histograms = metrics.getHistograms();
+		assertEquals(1, histograms.size());
+		assertEquals("SELECT * FROM Person WHERE age=? AND name=? AND _id IN (?)", histograms.get(0).getSql());
+		assertEquals(100, histograms.get(0).getCount());
+	}
+
+	@Test
+	public void operationsWithoutSqlAreKeptPerTypeAndTable() {
+		final HistogramMetrics metrics = new HistogramMetrics();
+		metrics.onOperation(OperationType.BATCH, null, null, 0, 1000, 10, 0);
+		metrics.onOperation(OperationType.BATCH, null, null, 0, 1000, 10, 0);
+		metrics.onOperation(OperationType.QUERY, "Person", "SELECT * FROM Person", 0, 1000, 1, 0);
+
+		final List<HistogramMetrics.Histogram> histograms = metrics.getHistograms();
+		assertEquals(2, histograms.size());
+		assertNull(histograms.get(0).getSql());
+		assertEquals(2, histograms.get(0).getCount());
+	}
+
+	@Test
+	public void leastRecentlyUsedHistogramIsDropped() {
+		final HistogramMetrics metrics = new HistogramMetrics(0, 2);
+		metrics.onOperation(OperationType.QUERY, "Person", "SELECT * FROM Person", 0, 1000, 1, 0);
+		metrics.onOperation(OperationType.QUERY, "Tag", "SELECT * FROM Tag", 0, 1000, 1, 0);
+		metrics.onOperation(OperationType.QUERY, "Person", "SELECT * FROM Person", 0, 1000, 1, 0);
+		metrics.onOperation(OperationType.QUERY, "Note", "SELECT * FROM Note", 0, 1000, 1, 0);
+
+		final List<HistogramMetrics.Histogram> histograms = metrics.getHistograms();
+		assertEquals(2, histograms.size());
+		assertEquals("SELECT * FROM Person", histograms.get(0).getSql());
+		assertEquals("SELECT * FROM Note", histograms.get(1).getSql());
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alienlabz.activerecord.model.Person;
+import com.alienlabz.util.Beans;
+
+/**
+ * Tests of the queries run again on table changes.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class LiveQueryTest {
+	private final BlockingQueue<Object> results = new LinkedBlockingQueue<Object>();
+	private final Callback<List<Person>> callback = new Callback<List<Person>>() {
+
+		public void onSuccess(final List<Person> result) {
+			results.add(result);
+		}
+
+		public void onFailure(final Throwable error) {
+			results.add(error);
+		}
+
+	};
+	private TestDatabase database;
+
+	@Before
+	public void setUp() throws Exception {
+		final Configuration configuration = TestDatabase.configuration();
+		configuration.setAsyncReadThreads(1);
+		configuration.setAsyncQueueSize(1);
+		database = TestDatabase.create(configuration).open(1);
+	}
+
+	@After
+	public void tearDown() {
+		database.close();
+	}
+
+	@Test
+	public void changesRunTheQueryAgain() throws Exception {
+		final LiveQuery<Person> live = Model.query(Person.class).live(callback);
+		live.start();
+		try {
+			assertEquals(0, ((List<?>) next()).size());
+
+			new Person("Ana", 30, "Recife").save();
+			assertEquals(1, ((List<?>) next()).size());
+		} finally {
+			live.stop();
+		}
+	}
+
+	@Test
+	public void rejectedRunIsReportedAndRetriedOnNextChange() throws Exception {
+		final DatabaseExecutor executor = Beans.getBean(DatabaseExecutor.class);
+		final CountDownLatch busy = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final LiveQuery<Person> live = Model.query(Person.class).live(callback);
+		try {
+			executor.read(new DatabaseCall<Void>() {
+
+				public Void call() throws Exception {
+					busy.countDown();
+					release.await();
+					return null;
+				}
+
+			}, null);
+			assertTrue(busy.await(5, TimeUnit.SECONDS));
+			final Future<Void> queued = executor.read(new DatabaseCall<Void>() {
+
+				public Void call() {
+					return null;
+				}
+
+			}, null);
+
+			live.start();
+			assertTrue(next() instanceof RejectedExecutionException);
+
+			release.countDown();
+			queued.get(5, TimeUnit.SECONDS);
+			new Person("Ana", 30, "Recife").save();
+			assertEquals(1, ((List<?>) next()).size());
+		} finally {
+			release.countDown();
+			live.stop();
+		}
+	}
+
+	private Object next() throws InterruptedException {
+		final Object result = results.poll(5, TimeUnit.SECONDS);
+		if (result instanceof Throwable && !(result instanceof RejectedExecutionException)) {
+			throw new AssertionError(result);
+		}
+		return result;
+	}
+
+}
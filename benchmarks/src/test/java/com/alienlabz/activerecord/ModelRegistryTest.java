@@ -0,0 +1,77 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.alienlabz.activerecord.benchmark.Contact;
+import com.alienlabz.activerecord.model.Person;
+
+/**
+ * Tests of the DDL statements and of the model registries generated by the annotation processor.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class ModelRegistryTest {
+	private TestDatabase database;
+
+	@After
+	public void tearDown() {
+		if (database != null) {
+			database.close();
+		}
+	}
+
+	@Test
+	public void generatedStatementsMatchRuntimeStatements() throws Exception {
+		database = TestDatabase.open();
+		final ModelRegistry registry = (ModelRegistry) Class.forName(TestDatabase.REGISTRY).newInstance();
+		assertTrue(registry.getModelClasses().length > 0);
+		for (Class<?> cls : registry.getModelClasses()) {
+			assertEquals(cls.getName(), Model.getSQLCreateTable(cls), registry.getSQLCreateTable(cls));
+			assertEquals(cls.getName(), Model.getSQLCreateIndexes(cls), Arrays.asList(registry.getSQLCreateIndexes(cls)));
+			assertEquals(cls.getName(), Model.getSQLCreateJoinTables(cls),
+					Arrays.asList(registry.getSQLCreateJoinTables(cls)));
+			final List<String> searchable = new ArrayList<String>();
+			for (ColumnMetadata column : EntityMetadata.of(cls).getSearchableColumns()) {
+				searchable.add(column.getName());
+			}
+			assertEquals(cls.getName(), searchable, Arrays.asList(registry.getSearchableColumns(cls)));
+		}
+	}
+
+	@Test
+	public void registriesOfSeveralModulesAreMerged() throws Exception {
+		final Configuration configuration = TestDatabase.configuration();
+		configuration.setModelRegistry(TestDatabase.REGISTRY + ", " + ModelRegistry.DEFAULT_NAME);
+		database = TestDatabase.create(configuration).open(1);
+
+		new Person("Ana", 30, "Recife").save();
+		new Contact().save();
+		assertEquals(1, Model.count(Person.class));
+		assertEquals(1, Model.count(Contact.class));
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alienlabz.activerecord.model.Label;
+import com.alienlabz.activerecord.model.Person;
+
+/**
+ * Tests of the query builder and of the legacy static finders.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class QueryTest {
+	private TestDatabase database;
+
+	@Before
+	public void setUp() throws Exception {
+		database = TestDatabase.open();
+		final int[] ages = { 30, 25, 30, 40, 25, 30, 35, 40, 25, 30 };
+		final List<Person> people = new ArrayList<Person>();
+		for (int i = 0; i < ages.length; i++) {
+			people.add(new Person("Person " + i, ages[i], i % 2 == 0 ? "Recife" : "Olinda"));
+		}
+		Model.saveAll(people);
+	}
+
+	@After
+	public void tearDown() {
+		database.close();
+	}
+
+	@Test
+	public void listsMapRowsThroughTransformOverride() {
+		final Label label = new Label("draft");
+		label.save();
+		assertEquals("DRAFT", Model.load(Label.class, label._id).display);
+		assertEquals("DRAFT", Model.findAll(Label.class).get(0).display);
+		assertEquals("DRAFT", Model.where(Label.class, "text=?", "draft").get(0).display);
+		assertEquals("DRAFT", Model.query(Label.class).list().get(0).display);
+	}
+
+	@Test
+	public void keysetPagesCoverEveryRowOnce() {
+		assertPages(Model.query(Person.class).orderBy("age").list(), false);
+	}
+
+	@Test
+	public void keysetPagesFollowDescendingOrdering() {
+		assertPages(Model.query(Person.class).orderByDescending("age").list(), true);
+	}
+
+	private void assertPages(final List<Person> expected, final boolean descending) {
+		final List<Integer> read = new ArrayList<Integer>();
+		Person last = null;
+		while (true) {
+			final Query<Person> query = Model.query(Person.class).limit(3).after(last);
+			final List<Person> page = (descending ? query.orderByDescending("age") : query.orderBy("age")).list();
+			if (page.isEmpty()) {
+				break;
+			}
+			for (Person person : page) {
+				read.add(person._id);
+			}
+			last = page.get(page.size() - 1);
+		}
+
+		final List<Integer> ids = new ArrayList<Integer>();
+		for (Person person : expected) {
+			ids.add(person._id);
+		}
+		assertEquals(ids, read);
+	}
+
+	@Test
+	public void keysetPaginationKeepsConditions() {
+		final Person first = Model.query(Person.class).where("city = ?", "Recife").orderBy("age").first();
+		final List<Person> rest = Model.query(Person.class).where("city = ?", "Recife").orderBy("age").after(first)
+				.list();
+		assertEquals(4, rest.size());
+		for (Person person : rest) {
+			assertEquals("Recife", person.city);
+		}
+	}
+
+	@Test
+	public void conditionsAreCombinedWithAnd() {
+		assertEquals(2, Model.query(Person.class).where("age = ? OR age = ?", "30", "40").where("city = ?", "Recife")
+				.count());
+	}
+
+	@Test
+	public void findFirstAcceptsRawClauseWithOrdering() {
+		final Person oldest = Model.findFirst(Person.class, "city = ? ORDER BY age DESC, _id DESC", "Olinda");
+		assertEquals(Integer.valueOf(40), oldest.age);
+		assertEquals("Person 7", oldest.name);
+	}
+
+	@Test
+	public void findFirstWithoutMatchReturnsNull() {
+		assertNull(Model.findFirst(Person.class, "age > ?", "100"));
+	}
+
+	@Test
+	public void whereAsyncAcceptsRawClauseWithOrdering() throws Exception {
+		final List<Person> people = Model.whereAsync(Person.class, "age = ? ORDER BY _id DESC", "25").get();
+		final List<String> names = new ArrayList<String>();
+		for (Person person : people) {
+			names.add(person.name);
+		}
+		assertEquals(Arrays.asList("Person 8", "Person 4", "Person 1"), names);
+	}
+
+	@Test
+	public void findLastReturnsHighestId() {
+		assertEquals("Person 9", Model.findLast(Person.class).name);
+	}
+
+	@Test
+	public void minAndMaxOfBooleanColumnKeepNull() {
+		assertNull(Model.query(Person.class).max("active"));
+		assertNull(Model.query(Person.class).where("age > ?", "100").min("active"));
+
+		Model.executeSQL("UPDATE Person SET active = 1 WHERE age = ?", 40);
+		assertEquals(Boolean.TRUE, Model.query(Person.class).min("active"));
+		assertEquals(Boolean.TRUE, Model.query(Person.class).max("active"));
+	}
+
+	@Test
+	public void maxOfIntegerColumnWithoutMatchIsNull() {
+		assertNull(Model.query(Person.class).where("age > ?", "100").max("age"));
+		assertEquals(Integer.valueOf(40), Model.query(Person.class).max("age"));
+	}
+
+}
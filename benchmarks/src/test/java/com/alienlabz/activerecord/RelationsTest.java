@@ -0,0 +1,128 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.SortedSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alienlabz.activerecord.annotation.ManyToMany;
+import com.alienlabz.activerecord.model.Article;
+import com.alienlabz.activerecord.model.Tag;
+
+/**
+ * Tests of the relationship mapping.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class RelationsTest {
+	private TestDatabase database;
+
+	@Before
+	public void setUp() throws Exception {
+		database = TestDatabase.open();
+	}
+
+	@After
+	public void tearDown() {
+		database.close();
+	}
+
+	@Test
+	public void includeLoadsDeclaredCollectionClass() {
+		final Tag java = new Tag("java");
+		final Tag android = new Tag("android");
+		Model.saveAll(Arrays.asList(java, android));
+
+		final Article article = new Article();
+		article.title = "Hello";
+		article.tags = new LinkedList<Tag>(Arrays.asList(java, android));
+		article.save();
+
+		final Article loaded = Model.query(Article.class).include("tags").first();
+		assertTrue(loaded.tags instanceof LinkedList);
+		assertEquals(2, loaded.tags.size());
+	}
+
+	@Test
+	public void deleteRemovesLinks() {
+		final Tag tag = new Tag("java");
+		tag.save();
+		final Article article = new Article();
+		article.tags = new LinkedList<Tag>(Arrays.asList(tag));
+		article.save();
+
+		assertEquals(1, database.queryForLong("SELECT count(*) FROM Article_tags"));
+
+		article.delete();
+		assertEquals(0, Model.count(Article.class));
+		assertEquals(1, Model.count(Tag.class));
+		assertEquals(0, database.queryForLong("SELECT count(*) FROM Article_tags"));
+	}
+
+	@Test
+	public void deletingTargetRemovesLinksToIt() {
+		final Tag java = new Tag("java");
+		final Tag android = new Tag("android");
+		final Tag kotlin = new Tag("kotlin");
+		Model.saveAll(Arrays.asList(java, android, kotlin));
+		final Article article = new Article();
+		article.tags = new LinkedList<Tag>(Arrays.asList(java, android, kotlin));
+		article.save();
+
+		java.delete();
+		assertEquals(2, database.queryForLong("SELECT count(*) FROM Article_tags"));
+
+		Model.deleteWhere(Tag.class, "name = ?", "android");
+		assertEquals(1, database.queryForLong("SELECT count(*) FROM Article_tags"));
+		assertEquals(1, Model.query(Article.class).include("tags").first().tags.size());
+	}
+
+	@Test
+	public void unsupportedCollectionInterfaceIsRejected() throws Exception {
+		try {
+			RelationMetadata.of(Holder.class, "Holder", Holder.class.getDeclaredField("queue"));
+			fail("A Queue field cannot be loaded.");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("queue"));
+		}
+		try {
+			RelationMetadata.of(Holder.class, "Holder", Holder.class.getDeclaredField("sorted"));
+			fail("A SortedSet field cannot be loaded.");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("sorted"));
+		}
+	}
+
+	static class Holder {
+		@ManyToMany
+		Queue<Tag> queue;
+
+		@ManyToMany
+		SortedSet<Tag> sorted;
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.alienlabz.activerecord.model.Product;
+
+/**
+ * Tests of the automatic migration of populated tables on upgrade.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class SchemaMigrationTest {
+	private TestDatabase database;
+
+	@After
+	public void tearDown() {
+		database.close();
+	}
+
+	@Test
+	public void newNotNullColumnIsAddedWithDefault() throws Exception {
+		upgrade("CREATE TABLE Product (_id INTEGER PRIMARY KEY, name TEXT, price REAL)",
+				"INSERT INTO Product (name, price) VALUES ('Pen', 1.5)",
+				"INSERT INTO Product (name, price) VALUES ('Ink', 3.0)");
+
+		final List<Product> products = Model.query(Product.class).orderBy("_id").list();
+		assertEquals(2, products.size());
+		assertEquals("Pen", products.get(0).name);
+		assertEquals("", products.get(0).code);
+		assertEquals("", products.get(1).code);
+		assertNull(products.get(0).barcode);
+	}
+
+	@Test
+	public void nullValuesAreFilledWhenColumnBecomesNotNull() throws Exception {
+		upgrade("CREATE TABLE Product (_id INTEGER PRIMARY KEY, code TEXT, name TEXT, price REAL, barcode INTEGER UNIQUE)",
+				"INSERT INTO Product (code, name) VALUES ('P1', 'Pen')",
+				"INSERT INTO Product (code, name) VALUES (NULL, 'Ink')");
+
+		final List<Product> products = Model.query(Product.class).orderBy("_id").list();
+		assertEquals(2, products.size());
+		assertEquals("P1", products.get(0).code);
+		assertEquals("", products.get(1).code);
+
+		new Product("P2", "Pad", 2.0).save();
+		assertEquals(3, Model.count(Product.class));
+	}
+
+	@Test
+	public void uniqueConstraintIsSkippedOnDuplicates() throws Exception {
+		upgrade("CREATE TABLE Product (_id INTEGER PRIMARY KEY, code TEXT, name TEXT, price REAL, barcode INTEGER)",
+				"INSERT INTO Product (code, name, barcode) VALUES ('P1', 'Pen', 42)",
+				"INSERT INTO Product (code, name, barcode) VALUES (NULL, 'Ink', 42)");
+
+		assertEquals(2, Model.count(Product.class));
+		assertEquals(2, Model.query(Product.class).where("barcode = ?", "42").count());
+		assertEquals("", Model.query(Product.class).where("name = ?", "Ink").first().code);
+	}
+
+	@Test
+	public void uniqueConstraintIsAddedWithoutDuplicates() throws Exception {
+		upgrade("CREATE TABLE Product (_id INTEGER PRIMARY KEY, code TEXT NOT NULL, name TEXT, price REAL, barcode INTEGER)",
+				"INSERT INTO Product (code, name, barcode) VALUES ('P1', 'Pen', 42)",
+				"INSERT INTO Product (code, name, barcode) VALUES ('P2', 'Ink', NULL)");
+
+		assertEquals(2, Model.count(Product.class));
+		try {
+			Model.executeSQL("UPDATE Product SET barcode = 42 WHERE code = 'P2'");
+			fail("The barcode column must be unique.");
+		} catch (RuntimeException e) {
+			assertEquals(1, Model.query(Product.class).where("barcode = ?", "42").count());
+		}
+	}
+
+	/**
+	 * Creates a version 1 database with the given statements, then opens it as version 2 with automatic
+	 * migration.
+	 */
+	private void upgrade(final String... statements) throws Exception {
+		final Configuration configuration = TestDatabase.configuration();
+		configuration.setAutomaticMigration(true);
+		database = TestDatabase.create(configuration);
+
+		final SQLiteDatabase old = SQLiteDatabase.openOrCreateDatabase(database.getPath());
+		try {
+			for (String statement : statements) {
+				old.execSQL(statement);
+			}
+			old.setVersion(1);
+		} finally {
+			old.close();
+		}
+		database.open(2);
+	}
+
+}
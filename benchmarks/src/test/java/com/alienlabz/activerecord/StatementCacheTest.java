@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Tests of the eviction of cached statements.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class StatementCacheTest {
+	private static final String SLOW_COUNT = "WITH RECURSIVE c(x) AS (SELECT 1 UNION ALL SELECT x + 1 FROM c "
+			+ "WHERE x < CAST(? AS INTEGER)) SELECT count(*) FROM c";
+
+	private File file;
+	private SQLiteDatabase database;
+	private StatementCache cache;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("activerecord-test", ".sqlite");
+		database = SQLiteDatabase.openOrCreateDatabase(file.getPath());
+		final Configuration configuration = TestDatabase.configuration();
+		configuration.setStatementCacheSize(1);
+		cache = new StatementCache(configuration);
+	}
+
+	@After
+	public void tearDown() {
+		cache.clear();
+		database.close();
+		file.delete();
+	}
+
+	@Test
+	public void evictionDoesNotWaitForRunningQuery() throws Exception {
+		final long[] result = new long[1];
+		final Thread query = new Thread() {
+
+			@Override
+			public void run() {
+				result[0] = cache.simpleQueryForLong(database, StatementCacheTest.class, "slow", factory(SLOW_COUNT),
+						"10000000");
+			}
+
+		};
+		query.start();
+		Thread.sleep(200);
+
+		final long start = System.nanoTime();
+		cache.getSQL(StatementCacheTest.class, "other", factory("SELECT 1"));
+		assertTrue("The eviction waited for the query.", System.nanoTime() - start < 1000000000L);
+		assertEquals(1, cache.getSize());
+
+		query.join();
+		assertEquals(10000000, result[0]);
+		assertEquals(3, cache.simpleQueryForLong(database, StatementCacheTest.class, "slow", factory(SLOW_COUNT),
+				"3"));
+	}
+
+	private static StatementCache.SQLFactory factory(final String sql) {
+		return new StatementCache.SQLFactory() {
+
+			public String create() {
+				return sql;
+			}
+
+		};
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.io.File;
+import java.io.IOException;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.alienlabz.util.Beans;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+
+/**
+ * Temporary database file for one test, with the engine wired to it through Guice the way ActiveRecordModule
+ * wires it on a device. Tables are created by {@link DBOpenHelper} from the model registry generated for the
+ * test models.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class TestDatabase {
+	static final String REGISTRY = "com.alienlabz.activerecord.generated.TestModelRegistry";
+
+	private final File file;
+	private final Configuration configuration;
+
+	private TestDatabase(final File file, final Configuration configuration) {
+		this.file = file;
+		this.configuration = configuration;
+	}
+
+	/**
+	 * Creates a configuration for test databases, reading the test model registry.
+	 * 
+	 * @return	the configuration
+	 */
+	public static Configuration configuration() {
+		final Configuration configuration = new Configuration();
+		configuration.setModelRegistry(REGISTRY);
+		return configuration;
+	}
+
+	/**
+	 * Creates an empty database file, with no table yet.
+	 * 
+	 * @param configuration	the engine configuration
+	 * @return	the database
+	 * @throws IOException	when the temporary file cannot be created
+	 */
+	public static TestDatabase create(final Configuration configuration) throws IOException {
+		final File file = File.createTempFile("activerecord-test", ".sqlite");
+		if (!file.delete()) {
+			throw new IOException("Could not prepare " + file);
+		}
+		return new TestDatabase(file, configuration);
+	}
+
+	/**
+	 * Creates a database with the tables of every test model.
+	 * 
+	 * @return	the database
+	 * @throws IOException	when the temporary file cannot be created
+	 */
+	public static TestDatabase open() throws IOException {
+		return create(configuration()).open(1);
+	}
+
+	/**
+	 * Points the engine to this database file with the given schema version, creating or upgrading the tables
+	 * on first access.
+	 * 
+	 * @param version	the schema version
+	 * @return	this database
+	 */
+	public TestDatabase open(final int version) {
+		final DBOpenHelper helper = new DBOpenHelper(new Context(), file.getPath(), null, version,
+				configuration.getConcurrencyMode() == ConcurrencyMode.WAL);
+		Beans.setInjector(Guice.createInjector(new AbstractModule() {
+
+			@Override
+			protected void configure() {
+				bind(Configuration.class).toInstance(configuration);
+				bind(DBOpenHelper.class).toInstance(helper);
+			}
+
+		}));
+		return this;
+	}
+
+	/**
+	 * Runs a query returning one single number, such as a count over a table that has no model class.
+	 * 
+	 * @param sql	the query
+	 * @param params	optional parameters
+	 * @return	the number
+	 */
+	public long queryForLong(final String sql, final String... params) {
+		return Beans.getBean(DatabaseAccess.class).read(new DatabaseWork<Long>() {
+
+			public Long execute(final SQLiteDatabase database) {
+				return StatementCache.simpleQueryForLong(database, sql, params);
+			}
+
+		});
+	}
+
+	public String getPath() {
+		return file.getPath();
+	}
+
+	/**
+	 * Closes the database and deletes its files.
+	 */
+	public void close() {
+		Model.closeDatabase();
+		Beans.getBean(DatabaseExecutor.class).shutdown();
+		for (String suffix : new String[] { "", "-wal", "-shm", "-journal" }) {
+			new File(file.getPath() + suffix).delete();
+		}
+	}
+
+}
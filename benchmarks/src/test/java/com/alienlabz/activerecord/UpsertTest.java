@@ -0,0 +1,129 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.alienlabz.activerecord.model.Product;
+
+/**
+ * Tests of upserts by id and by natural key.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class UpsertTest {
+	private TestDatabase database;
+
+	@Before
+	public void setUp() throws Exception {
+		database = TestDatabase.open();
+	}
+
+	@After
+	public void tearDown() {
+		database.close();
+	}
+
+	@Test
+	public void naturalKeyUpdatesExistingRow() {
+		final Product pen = new Product("P1", "Pen", 1.5);
+		pen.upsert();
+		final Integer id = pen._id;
+
+		final Product received = new Product("P1", "Blue pen", 2.0);
+		received.upsert();
+
+		assertEquals(id, received._id);
+		assertEquals(1, Model.count(Product.class));
+		assertEquals("Blue pen", Model.load(Product.class, id).name);
+	}
+
+	@Test
+	public void idUpdatesRowWithChangedKey() {
+		final Product pen = new Product("P1", "Pen", 1.5);
+		pen.upsert();
+
+		pen.code = "P9";
+		pen.upsert();
+
+		assertEquals(1, Model.count(Product.class));
+		assertEquals("P9", Model.load(Product.class, pen._id).code);
+	}
+
+	@Test
+	public void missingIdIsInserted() {
+		final Product pen = new Product("P1", "Pen", 1.5);
+		pen._id = 42;
+		pen.upsert();
+
+		assertEquals(Integer.valueOf(42), pen._id);
+		assertEquals("Pen", Model.load(Product.class, 42).name);
+	}
+
+	@Test
+	public void uniqueConflictFailsWithoutDeletingOtherRow() {
+		final Product pen = new Product("P1", "Pen", 1.5);
+		pen.barcode = 42L;
+		pen.upsert();
+
+		final Product ink = new Product("P2", "Ink", 3.0);
+		ink.barcode = 42L;
+		try {
+			ink.upsert();
+			fail("The barcode is unique.");
+		} catch (RuntimeException e) {
+			assertEquals(1, Model.count(Product.class));
+			assertEquals("Pen", Model.load(Product.class, pen._id).name);
+		}
+	}
+
+	@Test
+	public void idAndNaturalKeyOfDifferentRowsAreRejected() {
+		final Product pen = new Product("P1", "Pen", 1.5);
+		final Product ink = new Product("P2", "Ink", 3.0);
+		Model.upsertAll(Arrays.asList(pen, ink));
+
+		ink.code = "P1";
+		try {
+			ink.upsert();
+			fail("P1 belongs to another row.");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(String.valueOf(pen._id)));
+		}
+		assertEquals(2, Model.count(Product.class));
+		assertEquals("P2", Model.load(Product.class, ink._id).code);
+	}
+
+	@Test
+	public void upsertAllMixesInsertsAndUpdates() {
+		new Product("P1", "Pen", 1.5).upsert();
+
+		Model.upsertAll(Arrays.asList(new Product("P1", "Blue pen", 2.0), new Product("P2", "Ink", 3.0)));
+
+		assertEquals(2, Model.count(Product.class));
+		assertEquals("Blue pen", Model.query(Product.class).where("code = ?", "P1").first().name);
+	}
+
+}
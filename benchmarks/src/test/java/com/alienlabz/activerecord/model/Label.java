@@ -0,0 +1,46 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.model;
+
+import android.database.Cursor;
+
+import com.alienlabz.activerecord.Model;
+
+/**
+ * Test model that overrides the mapping of its rows.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class Label extends Model {
+	public String text;
+
+	public transient String display;
+
+	public Label() {
+	}
+
+	public Label(final String text) {
+		this.text = text;
+	}
+
+	@Override
+	protected void transform(final Cursor cursor) {
+		super.transform(cursor);
+		display = text.toUpperCase();
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.model;
+
+import com.alienlabz.activerecord.Model;
+
+/**
+ * Test model with accessible fields, mapped by the mapper generated at compile time.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class Person extends Model {
+	public String name;
+	public Integer age;
+	public String city;
+	public Boolean active;
+
+	public Person() {
+	}
+
+	public Person(final String name, final Integer age, final String city) {
+		this.name = name;
+		this.age = age;
+		this.city = city;
+	}
+
+}
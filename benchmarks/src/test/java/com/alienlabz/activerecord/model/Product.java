@@ -0,0 +1,62 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.model;
+
+import java.util.Date;
+
+import com.alienlabz.activerecord.Model;
+import com.alienlabz.activerecord.annotation.Index;
+import com.alienlabz.activerecord.annotation.Indexes;
+import com.alienlabz.activerecord.annotation.NaturalKey;
+import com.alienlabz.activerecord.annotation.NotNull;
+import com.alienlabz.activerecord.annotation.Unique;
+
+/**
+ * Test model with constraints, indexes and a natural key.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+@Indexes(@Index(name = "Product_name_price", columns = { "name", "price" }))
+public class Product extends Model {
+	@NaturalKey
+	@NotNull
+	public String code;
+
+	@Index
+	public String name;
+
+	public Double price;
+
+	@Unique
+	public Long barcode;
+
+	public boolean available;
+
+	public Date created;
+
+	public Tag category;
+
+	public Product() {
+	}
+
+	public Product(final String code, final String name, final Double price) {
+		this.code = code;
+		this.name = name;
+		this.price = price;
+	}
+
+}
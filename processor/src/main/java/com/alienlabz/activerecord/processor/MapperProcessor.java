@@ -0,0 +1,112 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.processor;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Generates a RowMapper and ValuesBinder for every Model subclass being compiled, so that rows are mapped
+ * with direct field access instead of reflection.</br>
+ * 
+ * Add this artifact to the compile classpath of the application (provided scope is enough). Model classes with
+ * private persistent fields, type parameters or no visible no-arg constructor are skipped and keep being mapped
+ * through reflection.</br>
+ * 
+ * Once every class is processed, a ModelRegistry listing all the model classes with their DDL statements is
+ * written, so the database is created without scanning the dex file. Its name is given by the
+ * "activerecord.registry" option and defaults to {@value RegistryWriter#DEFAULT_NAME}.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class MapperProcessor extends AbstractProcessor {
+	static final String REGISTRY_OPTION = "activerecord.registry";
+
+	private final RegistryWriter registry = new RegistryWriter();
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return Collections.singleton("*");
+	}
+
+	@Override
+	public Set<String> getSupportedOptions() {
+		return Collections.singleton(REGISTRY_OPTION);
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getRootElements()) {
+			process(element);
+		}
+		if (roundEnv.processingOver() && !registry.isEmpty()) {
+			writeRegistry();
+		}
+		return false;
+	}
+
+	private void writeRegistry() {
+		String name = processingEnv.getOptions().get(REGISTRY_OPTION);
+		if (name == null || name.length() == 0) {
+			name = RegistryWriter.DEFAULT_NAME;
+		}
+		try {
+			registry.write(processingEnv.getFiler(), name);
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Kind.ERROR,
+					"Could not generate the model registry " + name + ": " + e.getMessage());
+		}
+	}
+
+	private void process(final Element element) {
+		final ModelClass model = ModelClass.of(processingEnv, element);
+		if (model != null) {
+			registry.add(model, new ModelSchema(processingEnv, model));
+			if (model.isAccessible()) {
+				try {
+					new MapperWriter(model).write(processingEnv.getFiler());
+				} catch (IOException e) {
+					processingEnv.getMessager().printMessage(Kind.ERROR,
+							"Could not generate the mapper of " + model.getSourceName() + ": " + e.getMessage(), element);
+				}
+			} else {
+				processingEnv.getMessager().printMessage(Kind.NOTE,
+						model.getSourceName() + " will be mapped through reflection.", element);
+			}
+		}
+
+		for (Element enclosed : element.getEnclosedElements()) {
+			if (enclosed instanceof TypeElement) {
+				process(enclosed);
+			}
+		}
+	}
+
+}
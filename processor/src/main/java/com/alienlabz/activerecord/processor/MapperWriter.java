@@ -0,0 +1,167 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.VariableElement;
+import javax.tools.JavaFileObject;
+
+/**
+ * Writes the "$$Mapper" class of one model class: a RowMapper and ValuesBinder with direct field access.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+class MapperWriter {
+	static final String SUFFIX = "$$Mapper";
+
+	/**
+	 * Cursor getter of the numeric types read directly by generated code. Booleans and strings are read directly
+	 * too; other types are read by the column converter.
+	 */
+	private static final Map<String, String> getters = new HashMap<String, String>();
+
+	static {
+		getters.put("java.lang.Integer", "getInt");
+		getters.put("int", "getInt");
+		getters.put("java.lang.Long", "getLong");
+		getters.put("long", "getLong");
+		getters.put("java.lang.Short", "getShort");
+		getters.put("short", "getShort");
+		getters.put("java.lang.Double", "getDouble");
+		getters.put("double", "getDouble");
+		getters.put("java.lang.Float", "getFloat");
+		getters.put("float", "getFloat");
+	}
+
+	private final ModelClass model;
+
+	MapperWriter(final ModelClass model) {
+		this.model = model;
+	}
+
+	void write(final Filer filer) throws IOException {
+		final String packageName = model.getPackageName();
+		final String className = model.getBinaryName() + SUFFIX;
+		final String qualifiedName = packageName.length() == 0 ? className : packageName + "." + className;
+		final String type = model.getSourceName();
+		final List<VariableElement> fields = model.getFields();
+
+		final JavaFileObject file = filer.createSourceFile(qualifiedName, model.getElement());
+		final PrintWriter out = new PrintWriter(file.openWriter());
+		try {
+			if (packageName.length() > 0) {
+				out.println("package " + packageName + ";");
+				out.println();
+			}
+			out.println("import android.database.Cursor;");
+			out.println("import android.database.sqlite.SQLiteStatement;");
+			out.println();
+			out.println("import com.alienlabz.activerecord.ColumnMetadata;");
+			out.println("import com.alienlabz.activerecord.RowMapper;");
+			out.println("import com.alienlabz.activerecord.ValuesBinder;");
+			out.println();
+			out.println("/**");
+			out.println(" * Generated by " + MapperProcessor.class.getName() + ". Do not edit.");
+			out.println(" */");
+			out.println("public final class " + className + " implements RowMapper<" + type + ">, ValuesBinder<" + type
+					+ "> {");
+			out.println();
+
+			out.print("\tprivate static final String[] COLUMNS = {");
+			for (int i = 0; i < fields.size(); i++) {
+				out.print((i > 0 ? ", \"" : " \"") + fields.get(i).getSimpleName() + "\"");
+			}
+			out.println(" };");
+			out.println();
+
+			out.println("\tpublic String[] getColumnNames() {");
+			out.println("\t\treturn COLUMNS.clone();");
+			out.println("\t}");
+			out.println();
+
+			out.println("\tpublic " + type + " newInstance() {");
+			out.println("\t\treturn new " + type + "();");
+			out.println("\t}");
+			out.println();
+
+			out.println("\tpublic void map(final Cursor cursor, final int[] indexes, final ColumnMetadata[] columns, final "
+					+ type + " model) {");
+			out.println("\t\tint index;");
+			for (int i = 0; i < fields.size(); i++) {
+				writeRead(out, i, fields.get(i));
+			}
+			out.println("\t}");
+			out.println();
+
+			out.println("\tpublic void bind(final SQLiteStatement statement, final ColumnMetadata[] columns, final " + type
+					+ " model) {");
+			for (int i = 0; i < fields.size(); i++) {
+				out.println("\t\tcolumns[" + i + "].getConverter().bind(statement, " + (i + 1) + ", model."
+						+ fields.get(i).getSimpleName() + ");");
+			}
+			out.println("\t}");
+			out.println();
+			out.println("}");
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeRead(final PrintWriter out, final int position, final VariableElement field) {
+		final String name = field.getSimpleName().toString();
+		final String type = ModelClass.getTypeName(field);
+		final boolean primitive = field.asType().getKind().isPrimitive();
+		final boolean boolType = type.equals("boolean") || type.equals("java.lang.Boolean");
+		if (primitive && !boolType && !getters.containsKey(type)) {
+			// Columns of unmapped primitive types (char, byte) are declared but never read.
+			return;
+		}
+
+		out.println("\t\tindex = indexes[" + position + "];");
+		if (boolType) {
+			out.println("\t\tif (index != -1) {");
+			out.println("\t\t\tmodel." + name + " = !cursor.isNull(index) && cursor.getInt(index) == 1;");
+			out.println("\t\t}");
+		} else if (type.equals("java.lang.String")) {
+			out.println("\t\tif (index != -1) {");
+			out.println("\t\t\tmodel." + name + " = cursor.getString(index);");
+			out.println("\t\t}");
+		} else if (getters.containsKey(type) && primitive) {
+			out.println("\t\tif (index != -1 && !cursor.isNull(index)) {");
+			out.println("\t\t\tmodel." + name + " = cursor." + getters.get(type) + "(index);");
+			out.println("\t\t}");
+		} else if (getters.containsKey(type)) {
+			out.println("\t\tif (index != -1) {");
+			out.println("\t\t\tmodel." + name + " = cursor.isNull(index) ? null : " + type + ".valueOf(cursor."
+					+ getters.get(type) + "(index));");
+			out.println("\t\t}");
+		} else {
+			// Dates, enums and any other type are read by the column converter. Unreadable columns are never bound.
+			out.println("\t\tif (index != -1) {");
+			out.println("\t\t\tmodel." + name + " = (" + type + ") columns[" + position
+					+ "].getConverter().read(cursor, index);");
+			out.println("\t\t}");
+		}
+	}
+
+}
@@ -0,0 +1,211 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+
+/**
+ * Compile time view of a Model subclass: its persistent fields, as the runtime
+ * com.alienlabz.activerecord.EntityMetadata finds them through reflection.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+class ModelClass {
+	static final String MODEL = "com.alienlabz.activerecord.Model";
+	private static final String TRANSIENT = "com.alienlabz.annotation.Transient";
+
+	private final TypeElement element;
+	private final String packageName;
+	private final String binaryName;
+	private final List<VariableElement> fields = new ArrayList<VariableElement>();
+	private boolean accessible = true;
+
+	private ModelClass(final ProcessingEnvironment env, final TypeElement element) {
+		this.element = element;
+		final PackageElement pkg = env.getElementUtils().getPackageOf(element);
+		this.packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+
+		final String binary = env.getElementUtils().getBinaryName(element).toString();
+		this.binaryName = packageName.length() == 0 ? binary : binary.substring(packageName.length() + 1);
+
+		final Types types = env.getTypeUtils();
+		for (VariableElement field : ElementFilter.fieldsIn(element.getEnclosedElements())) {
+			final Set<Modifier> modifiers = field.getModifiers();
+			if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)
+					|| hasAnnotation(field, TRANSIENT) || isMultiValued(env, types, field.asType())) {
+				continue;
+			}
+			if (modifiers.contains(Modifier.PRIVATE) || field.asType().getKind() == TypeKind.TYPEVAR) {
+				accessible = false;
+			}
+			fields.add(field);
+		}
+
+		boolean constructor = false;
+		for (ExecutableElement ctor : ElementFilter.constructorsIn(element.getEnclosedElements())) {
+			if (ctor.getParameters().isEmpty() && !ctor.getModifiers().contains(Modifier.PRIVATE)) {
+				constructor = true;
+			}
+		}
+		if (!constructor || !element.getTypeParameters().isEmpty()) {
+			accessible = false;
+		}
+	}
+
+	/**
+	 * Returns the model class declared by the given element, or null when it is not a concrete Model subclass.
+	 * 
+	 * @param env	the processing environment
+	 * @param element	a root element
+	 * @return	the model class
+	 */
+	static ModelClass of(final ProcessingEnvironment env, final Element element) {
+		if (element.getKind() != ElementKind.CLASS || element.getModifiers().contains(Modifier.ABSTRACT)) {
+			return null;
+		}
+		final TypeElement type = (TypeElement) element;
+		if (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)) {
+			return null;
+		}
+		if (!isModel(env, type)) {
+			return null;
+		}
+		return new ModelClass(env, type);
+	}
+
+	static boolean isModel(final ProcessingEnvironment env, final TypeElement type) {
+		TypeMirror superclass = type.getSuperclass();
+		while (superclass.getKind() == TypeKind.DECLARED) {
+			final TypeElement parent = (TypeElement) env.getTypeUtils().asElement(superclass);
+			if (parent.getQualifiedName().contentEquals(MODEL)) {
+				return true;
+			}
+			superclass = parent.getSuperclass();
+		}
+		return false;
+	}
+
+	private static boolean hasAnnotation(final Element element, final String name) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			final TypeElement type = (TypeElement) annotation.getAnnotationType().asElement();
+			if (type.getQualifiedName().contentEquals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isMultiValued(final ProcessingEnvironment env, final Types types, final TypeMirror type) {
+		if (type.getKind() == TypeKind.ARRAY) {
+			return true;
+		}
+		if (type.getKind() != TypeKind.DECLARED) {
+			return false;
+		}
+		final TypeMirror erased = types.erasure(type);
+		return types.isAssignable(erased, types.erasure(env.getElementUtils().getTypeElement("java.util.Collection").asType()))
+				|| types.isAssignable(erased, types.erasure(env.getElementUtils().getTypeElement("java.util.Map").asType()));
+	}
+
+	TypeElement getElement() {
+		return element;
+	}
+
+	String getPackageName() {
+		return packageName;
+	}
+
+	/**
+	 * Returns the class name as seen by Class.getName(), without the package.
+	 * 
+	 * @return	a String
+	 */
+	String getBinaryName() {
+		return binaryName;
+	}
+
+	/**
+	 * Returns the class name to be used in source code.
+	 * 
+	 * @return	a String
+	 */
+	String getSourceName() {
+		return element.getQualifiedName().toString();
+	}
+
+	/**
+	 * Returns true whether code in other packages can refer to the class, which requires the class and every
+	 * enclosing class to be public.
+	 * 
+	 * @return	a boolean
+	 */
+	boolean isPublic() {
+		Element current = element;
+		while (current instanceof TypeElement) {
+			if (!current.getModifiers().contains(Modifier.PUBLIC)) {
+				return false;
+			}
+			current = current.getEnclosingElement();
+		}
+		return true;
+	}
+
+	List<VariableElement> getFields() {
+		return fields;
+	}
+
+	/**
+	 * Returns true whether generated code can instantiate the class and access all its persistent fields.
+	 * 
+	 * @return	a boolean
+	 */
+	boolean isAccessible() {
+		return accessible;
+	}
+
+	/**
+	 * Returns the name of the boxed or plain declared type of the given field, as written in source code.
+	 * 
+	 * @param field	the field
+	 * @return	a String
+	 */
+	static String getTypeName(final VariableElement field) {
+		final TypeMirror type = field.asType();
+		if (type.getKind() == TypeKind.DECLARED) {
+			return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+		}
+		return type.toString();
+	}
+
+}
@@ -0,0 +1,237 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+
+/**
+ * DDL statements of one model class, computed at compile time exactly as the runtime
+ * com.alienlabz.activerecord.Model builds them from the class metadata.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+class ModelSchema {
+	private static final String ANNOTATION = "com.alienlabz.activerecord.annotation.";
+
+	private final String createTable;
+	private final List<String> createIndexes = new ArrayList<String>();
+	private final List<String> createJoinTables = new ArrayList<String>();
+	private final List<String> searchableColumns = new ArrayList<String>();
+
+	ModelSchema(final ProcessingEnvironment env, final ModelClass model) {
+		final TypeElement element = model.getElement();
+		final String tableName = element.getSimpleName().toString();
+
+		final StringBuilder sql = new StringBuilder();
+		sql.append("CREATE TABLE ");
+		sql.append(tableName);
+		sql.append(" (_id INTEGER PRIMARY KEY");
+		for (VariableElement field : model.getFields()) {
+			final String name = field.getSimpleName().toString();
+			sql.append(", ");
+			sql.append(name);
+			sql.append(" ");
+			sql.append(getSQLType(env, field.asType()));
+			if (getAnnotation(field, ANNOTATION + "NotNull") != null) {
+				sql.append(" NOT NULL");
+			}
+			if (getAnnotation(field, ANNOTATION + "Unique") != null) {
+				sql.append(" UNIQUE");
+			}
+			if (getAnnotation(field, ANNOTATION + "FullTextSearchable") != null) {
+				searchableColumns.add(name);
+			}
+
+			final AnnotationMirror index = getAnnotation(field, ANNOTATION + "Index");
+			if (index != null) {
+				createIndexes.add(getSQLCreateIndex(env, index, tableName, new String[] { name }));
+			}
+		}
+		sql.append(");");
+		this.createTable = sql.toString();
+
+		final AnnotationMirror indexes = getAnnotation(element, ANNOTATION + "Indexes");
+		if (indexes != null) {
+			for (Object value : (List<?>) getValue(env, indexes, "value")) {
+				final AnnotationMirror index = (AnnotationMirror) ((AnnotationValue) value).getValue();
+				createIndexes.add(getSQLCreateIndex(env, index, tableName, getStrings(env, index, "columns")));
+			}
+		}
+
+		final List<String> naturalKey = new ArrayList<String>();
+		for (VariableElement field : model.getFields()) {
+			if (getAnnotation(field, ANNOTATION + "NaturalKey") != null) {
+				naturalKey.add(field.getSimpleName().toString());
+			}
+		}
+		if (!naturalKey.isEmpty()) {
+			final String[] columns = naturalKey.toArray(new String[naturalKey.size()]);
+			createIndexes.add(getSQLCreateIndex(null, true, tableName, columns));
+		}
+
+		for (VariableElement field : ElementFilter.fieldsIn(element.getEnclosedElements())) {
+			final AnnotationMirror manyToMany = getAnnotation(field, ANNOTATION + "ManyToMany");
+			if (manyToMany == null || field.getModifiers().contains(Modifier.STATIC)) {
+				continue;
+			}
+			String joinTable = (String) getValue(env, manyToMany, "joinTable");
+			if (joinTable.length() == 0) {
+				joinTable = tableName + "_" + field.getSimpleName();
+			}
+			createJoinTables.add("CREATE TABLE IF NOT EXISTS " + joinTable
+					+ " (owner_id INTEGER NOT NULL, target_id INTEGER NOT NULL, PRIMARY KEY (owner_id, target_id));");
+		}
+	}
+
+	String getSQLCreateTable() {
+		return createTable;
+	}
+
+	List<String> getSQLCreateIndexes() {
+		return createIndexes;
+	}
+
+	List<String> getSQLCreateJoinTables() {
+		return createJoinTables;
+	}
+
+	List<String> getSearchableColumns() {
+		return searchableColumns;
+	}
+
+	private static String getSQLCreateIndex(final ProcessingEnvironment env, final AnnotationMirror index,
+			final String tableName, final String[] columns) {
+		return getSQLCreateIndex((String) getValue(env, index, "name"),
+				Boolean.TRUE.equals(getValue(env, index, "unique")), tableName, columns);
+	}
+
+	private static String getSQLCreateIndex(final String indexName, final boolean unique, final String tableName,
+			final String[] columns) {
+		String name = indexName;
+		if (name == null || name.length() == 0) {
+			final StringBuilder generated = new StringBuilder(tableName);
+			for (String column : columns) {
+				generated.append('_').append(column);
+			}
+			name = generated.append("_idx").toString();
+		}
+
+		final StringBuilder sql = new StringBuilder();
+		sql.append(unique ? "CREATE UNIQUE INDEX IF NOT EXISTS " : "CREATE INDEX IF NOT EXISTS ");
+		sql.append(name);
+		sql.append(" ON ");
+		sql.append(tableName);
+		sql.append(" (");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(columns[i]);
+		}
+		sql.append(");");
+		return sql.toString();
+	}
+
+	/**
+	 * Returns the SQL data type the runtime type converters declare for the given field type.
+	 * 
+	 * @param env	the processing environment
+	 * @param type	the field type
+	 * @return	a String
+	 */
+	private static String getSQLType(final ProcessingEnvironment env, final TypeMirror type) {
+		switch (type.getKind()) {
+		case BOOLEAN:
+		case BYTE:
+		case SHORT:
+		case INT:
+		case LONG:
+			return "INTEGER";
+		case FLOAT:
+		case DOUBLE:
+			return "REAL";
+		case DECLARED:
+			break;
+		default:
+			return "TEXT";
+		}
+
+		final TypeElement element = (TypeElement) env.getTypeUtils().asElement(type);
+		final String name = element.getQualifiedName().toString();
+		if (name.equals("java.lang.Boolean") || name.equals("java.lang.Byte") || name.equals("java.lang.Short")
+				|| name.equals("java.lang.Integer") || name.equals("java.lang.Long")) {
+			return "INTEGER";
+		}
+		if (name.equals("java.lang.Float") || name.equals("java.lang.Double")) {
+			return "REAL";
+		}
+		if (name.equals("java.util.Date")) {
+			return "DATE";
+		}
+		if (element.getKind() == ElementKind.ENUM || name.equals(ModelClass.MODEL) || ModelClass.isModel(env, element)) {
+			return "INTEGER";
+		}
+		return "TEXT";
+	}
+
+	private static AnnotationMirror getAnnotation(final Element element, final String name) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			final TypeElement type = (TypeElement) annotation.getAnnotationType().asElement();
+			if (type.getQualifiedName().contentEquals(name)) {
+				return annotation;
+			}
+		}
+		return null;
+	}
+
+	private static Object getValue(final ProcessingEnvironment env, final AnnotationMirror annotation,
+			final String name) {
+		final Map<? extends ExecutableElement, ? extends AnnotationValue> values = env.getElementUtils()
+				.getElementValuesWithDefaults(annotation);
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+			if (entry.getKey().getSimpleName().contentEquals(name)) {
+				return entry.getValue().getValue();
+			}
+		}
+		return null;
+	}
+
+	private static String[] getStrings(final ProcessingEnvironment env, final AnnotationMirror annotation,
+			final String name) {
+		final List<?> values = (List<?>) getValue(env, annotation, name);
+		final String[] strings = new String[values.size()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = (String) ((AnnotationValue) values.get(i)).getValue();
+		}
+		return strings;
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.tools.JavaFileObject;
+
+/**
+ * Writes the ModelRegistry class that lists every model class compiled in one pass, with its DDL statements and
+ * its full-text searchable columns.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+class RegistryWriter {
+	static final String DEFAULT_NAME = "com.alienlabz.activerecord.generated.GeneratedModelRegistry";
+
+	private final List<String> classes = new ArrayList<String>();
+	private final List<ModelSchema> schemas = new ArrayList<ModelSchema>();
+	private final List<Element> elements = new ArrayList<Element>();
+	private boolean reflective;
+
+	/**
+	 * Adds a model class to the registry. Classes that code in the registry package cannot refer to are loaded
+	 * by name.
+	 * 
+	 * @param model	the model class
+	 * @param schema	its DDL statements
+	 */
+	void add(final ModelClass model, final ModelSchema schema) {
+		if (model.isPublic()) {
+			classes.add(model.getSourceName() + ".class");
+		} else {
+			final String packageName = model.getPackageName();
+			final String binaryName = packageName.length() == 0 ? model.getBinaryName() : packageName + "."
+					+ model.getBinaryName();
+			classes.add("load(\"" + binaryName + "\")");
+			reflective = true;
+		}
+		schemas.add(schema);
+		elements.add(model.getElement());
+	}
+
+	boolean isEmpty() {
+		return classes.isEmpty();
+	}
+
+	void write(final Filer filer, final String qualifiedName) throws IOException {
+		final int dot = qualifiedName.lastIndexOf('.');
+		final String packageName = dot == -1 ? "" : qualifiedName.substring(0, dot);
+		final String className = qualifiedName.substring(dot + 1);
+
+		final JavaFileObject file = filer.createSourceFile(qualifiedName, elements.toArray(new Element[elements.size()]));
+		final PrintWriter out = new PrintWriter(file.openWriter());
+		try {
+			if (packageName.length() > 0) {
+				out.println("package " + packageName + ";");
+				out.println();
+			}
+			out.println("import com.alienlabz.activerecord.ModelRegistry;");
+			out.println();
+			out.println("/**");
+			out.println(" * Generated by " + MapperProcessor.class.getName() + ". Do not edit.");
+			out.println(" */");
+			out.println("public final class " + className + " implements ModelRegistry {");
+			out.println();
+
+			out.println("\tprivate static final Class<?>[] CLASSES = {");
+			for (int i = 0; i < classes.size(); i++) {
+				out.println("\t\t" + classes.get(i) + (i < classes.size() - 1 ? "," : ""));
+			}
+			out.println("\t};");
+			out.println();
+
+			out.println("\tprivate static final String[] TABLES = {");
+			for (int i = 0; i < schemas.size(); i++) {
+				out.println("\t\t" + literal(schemas.get(i).getSQLCreateTable()) + (i < schemas.size() - 1 ? "," : ""));
+			}
+			out.println("\t};");
+			out.println();
+
+			out.println("\tprivate static final String[][] INDEXES = {");
+			for (int i = 0; i < schemas.size(); i++) {
+				out.println("\t\t" + literals(schemas.get(i).getSQLCreateIndexes()) + (i < schemas.size() - 1 ? "," : ""));
+			}
+			out.println("\t};");
+			out.println();
+
+			out.println("\tprivate static final String[][] JOIN_TABLES = {");
+			for (int i = 0; i < schemas.size(); i++) {
+				out.println("\t\t" + literals(schemas.get(i).getSQLCreateJoinTables())
+						+ (i < schemas.size() - 1 ? "," : ""));
+			}
+			out.println("\t};");
+			out.println();
+
+			out.println("\tprivate static final String[][] SEARCHABLE_COLUMNS = {");
+			for (int i = 0; i < schemas.size(); i++) {
+				out.println("\t\t" + literals(schemas.get(i).getSearchableColumns())
+						+ (i < schemas.size() - 1 ? "," : ""));
+			}
+			out.println("\t};");
+			out.println();
+
+			out.println("\tpublic Class<?>[] getModelClasses() {");
+			out.println("\t\treturn CLASSES.clone();");
+			out.println("\t}");
+			out.println();
+
+			out.println("\tpublic String getSQLCreateTable(final Class<?> cls) {");
+			out.println("\t\tfinal int index = indexOf(cls);");
+			out.println("\t\treturn index == -1 ? null : TABLES[index];");
+			out.println("\t}");
+			out.println();
+
+			out.println("\tpublic String[] getSQLCreateIndexes(final Class<?> cls) {");
+			out.println("\t\tfinal int index = indexOf(cls);");
+			out.println("\t\treturn index == -1 ? null : INDEXES[index].clone();");
+			out.println("\t}");
+			out.println();
+
+			out.println("\tpublic String[] getSQLCreateJoinTables(final Class<?> cls) {");
+			out.println("\t\tfinal int index = indexOf(cls);");
+			out.println("\t\treturn index == -1 ? null : JOIN_TABLES[index].clone();");
+			out.println("\t}");
+			out.println();
+
+			out.println("\tpublic String[] getSearchableColumns(final Class<?> cls) {");
+			out.println("\t\tfinal int index = indexOf(cls);");
+			out.println("\t\treturn index == -1 ? null : SEARCHABLE_COLUMNS[index].clone();");
+			out.println("\t}");
+			out.println();
+
+			out.println("\tprivate static int indexOf(final Class<?> cls) {");
+			out.println("\t\tfor (int i = 0; i < CLASSES.length; i++) {");
+			out.println("\t\t\tif (CLASSES[i] == cls) {");
+			out.println("\t\t\t\treturn i;");
+			out.println("\t\t\t}");
+			out.println("\t\t}");
+			out.println("\t\treturn -1;");
+			out.println("\t}");
+
+			if (reflective) {
+				out.println();
+				out.println("\tprivate static Class<?> load(final String name) {");
+				out.println("\t\ttry {");
+				out.println("\t\t\treturn Class.forName(name, false, " + className + ".class.getClassLoader());");
+				out.println("\t\t} catch (ClassNotFoundException e) {");
+				out.println("\t\t\tthrow new NoClassDefFoundError(name);");
+				out.println("\t\t}");
+				out.println("\t}");
+			}
+			out.println();
+			out.println("}");
+		} finally {
+			out.close();
+		}
+	}
+
+	private static String literals(final List<String> values) {
+		final StringBuilder code = new StringBuilder("{");
+		for (int i = 0; i < values.size(); i++) {
+			code.append(i > 0 ? ", " : " ").append(literal(values.get(i)));
+		}
+		return code.append(values.isEmpty() ? "}" : " }").toString();
+	}
+
+	private static String literal(final String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+}
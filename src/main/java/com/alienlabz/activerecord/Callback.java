@@ -0,0 +1,45 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+/**
+ * Receives the outcome of an asynchronous database operation.</br>
+ * 
+ * Callbacks run on the database thread that executed the operation, so they must not touch views directly:
+ * post the result to the main thread, with Activity.runOnUiThread() for instance. Cancelled operations do not
+ * call back.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ * @param <T>	the result type
+ */
+public interface Callback<T> {
+
+	/**
+	 * Called when the operation completes.
+	 * 
+	 * @param result	the operation result
+	 */
+	void onSuccess(T result);
+
+	/**
+	 * Called when the operation fails.
+	 * 
+	 * @param error	the failure cause
+	 */
+	void onFailure(Throwable error);
+
+}
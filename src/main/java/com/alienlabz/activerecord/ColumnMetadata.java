@@ -0,0 +1,170 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.lang.reflect.Field;
+import java.util.Date;
+
+import com.alienlabz.activerecord.annotation.NotNull;
+import com.alienlabz.activerecord.annotation.Unique;
+
+/**
+ * Compiled description of one persistent column of a model class.
+ *
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class ColumnMetadata {
+	private final String name;
+	private final Field field;
+	private final TypeConverter converter;
+	private final boolean primitive;
+	private final boolean notNull;
+	private final boolean unique;
+
+	ColumnMetadata(final Field field, final TypeConverter converter) {
+		this.name = field.getName();
+		this.field = field;
+		this.converter = converter;
+		this.primitive = field.getType().isPrimitive();
+		this.notNull = field.isAnnotationPresent(NotNull.class);
+		this.unique = field.isAnnotationPresent(Unique.class);
+		this.field.setAccessible(true);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Field getField() {
+		return field;
+	}
+
+	public TypeConverter getConverter() {
+		return converter;
+	}
+
+	/**
+	 * Returns the referenced model class when this column is a belongs-to reference, or null otherwise.
+	 *
+	 * @return	the class
+	 */
+	public Class<? extends Model> getReferencedType() {
+		if (converter instanceof TypeConverters.ReferenceConverter) {
+			return ((TypeConverters.ReferenceConverter) converter).getType();
+		}
+		return null;
+	}
+
+	public boolean isNotNull() {
+		return notNull;
+	}
+
+	public boolean isUnique() {
+		return unique;
+	}
+
+	/**
+	 * Generates the column definition used in the DDL table creation statement.
+	 *
+	 * @return	the definition
+	 */
+	public String getSQLDefinition() {
+		return getSQLDefinition(unique);
+	}
+
+	/**
+	 * Generates the column definition used in the DDL table creation statement, with or without its UNIQUE
+	 * constraint.
+	 *
+	 * @param unique	whether the UNIQUE constraint is declared
+	 * @return	the definition
+	 */
+	String getSQLDefinition(final boolean unique) {
+		final StringBuilder sql = new StringBuilder();
+		sql.append(name);
+		sql.append(" ");
+		sql.append(converter.getSQLType());
+		if (notNull) {
+			sql.append(" NOT NULL");
+		}
+		if (unique) {
+			sql.append(" UNIQUE");
+		}
+		return sql.toString();
+	}
+
+	/**
+	 * Converts the given value to a query parameter comparable with this column, such as the bounds of a range
+	 * query on a date column.
+	 *
+	 * @param value	a value of the field type
+	 * @return	the parameter
+	 */
+	public String toParameter(final Object value) {
+		return converter.write(value);
+	}
+
+	/**
+	 * Returns the current value of this column's field in the given model.
+	 *
+	 * @param object	the model
+	 * @return	the field value
+	 */
+	public Object get(final Object object) {
+		try {
+			return field.get(object);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the current value of this column's field in a form that is kept to detect later changes: dates
+	 * by their time, since they are mutable, and references by their id.
+	 *
+	 * @param object	the model
+	 * @return	the value state
+	 */
+	Object getState(final Object object) {
+		final Object value = get(object);
+		if (value instanceof Date) {
+			return ((Date) value).getTime();
+		}
+		if (value instanceof Model) {
+			return ((Model) value)._id;
+		}
+		return value;
+	}
+
+	/**
+	 * Assigns the given value to this column's field. Null values are ignored for primitive fields.
+	 *
+	 * @param object	the model
+	 * @param value	the value
+	 */
+	public void set(final Object object, final Object value) {
+		if (value == null && primitive) {
+			return;
+		}
+		try {
+			field.set(object, value);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
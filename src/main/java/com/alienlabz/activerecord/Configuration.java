@@ -0,0 +1,156 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+/**
+ * ActiveRecord engine settings.</br>
+ * 
+ * The defaults can be changed through meta-data entries in the AndroidManifest file (see
+ * {@link com.alienlabz.activerecord.module.ActiveRecordModule}) or programmatically, before the first database
+ * operation.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class Configuration {
+	private ConcurrencyMode concurrencyMode = ConcurrencyMode.SERIALIZED;
+	private int writeQueueSize = 64;
+	private int batchChunkSize = 0;
+	private int statementCacheSize = 32;
+	private DateStorage dateStorage = DateStorage.TEXT;
+	private int asyncReadThreads = 2;
+	private int asyncQueueSize = 64;
+	private String modelRegistry = ModelRegistry.DEFAULT_NAME;
+	private boolean automaticMigration = true;
+
+	public ConcurrencyMode getConcurrencyMode() {
+		return concurrencyMode;
+	}
+
+	public void setConcurrencyMode(final ConcurrencyMode concurrencyMode) {
+		this.concurrencyMode = concurrencyMode;
+	}
+
+	/**
+	 * Returns how many writes may wait for the writer thread in {@link ConcurrencyMode#WAL} mode before new
+	 * writers block.
+	 * 
+	 * @return	an int
+	 */
+	public int getWriteQueueSize() {
+		return writeQueueSize;
+	}
+
+	public void setWriteQueueSize(final int writeQueueSize) {
+		this.writeQueueSize = writeQueueSize;
+	}
+
+	/**
+	 * Returns how many rows {@link Model#saveAll(java.util.Iterator)} writes per transaction. Zero means every
+	 * row is written in one single transaction.
+	 * 
+	 * @return	an int
+	 */
+	public int getBatchChunkSize() {
+		return batchChunkSize;
+	}
+
+	public void setBatchChunkSize(final int batchChunkSize) {
+		this.batchChunkSize = batchChunkSize;
+	}
+
+	/**
+	 * Returns how many generated statements the {@link StatementCache} keeps.
+	 * 
+	 * @return	an int
+	 */
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	public void setStatementCacheSize(final int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	/**
+	 * Returns how Date fields are stored, unless overridden per field with
+	 * {@link com.alienlabz.activerecord.annotation.StoreDateAs}.
+	 * 
+	 * @return	the strategy
+	 */
+	public DateStorage getDateStorage() {
+		return dateStorage;
+	}
+
+	public void setDateStorage(final DateStorage dateStorage) {
+		this.dateStorage = dateStorage;
+	}
+
+	/**
+	 * Returns how many threads the {@link DatabaseExecutor} uses to run asynchronous reads.
+	 * 
+	 * @return	an int
+	 */
+	public int getAsyncReadThreads() {
+		return asyncReadThreads;
+	}
+
+	public void setAsyncReadThreads(final int asyncReadThreads) {
+		this.asyncReadThreads = asyncReadThreads;
+	}
+
+	/**
+	 * Returns how many asynchronous operations may wait in each lane of the {@link DatabaseExecutor} before new
+	 * ones are rejected.
+	 * 
+	 * @return	an int
+	 */
+	public int getAsyncQueueSize() {
+		return asyncQueueSize;
+	}
+
+	public void setAsyncQueueSize(final int asyncQueueSize) {
+		this.asyncQueueSize = asyncQueueSize;
+	}
+
+	/**
+	 * Returns the names of the generated {@link ModelRegistry} classes read when the database is created or
+	 * upgraded, separated by commas when the models come from several modules.
+	 * 
+	 * @return	the class names
+	 */
+	public String getModelRegistry() {
+		return modelRegistry;
+	}
+
+	public void setModelRegistry(final String modelRegistry) {
+		this.modelRegistry = modelRegistry;
+	}
+
+	/**
+	 * Returns true whether {@link SchemaMigration} brings the tables up to date when the database is upgraded.
+	 * 
+	 * @return	a boolean
+	 */
+	public boolean isAutomaticMigration() {
+		return automaticMigration;
+	}
+
+	public void setAutomaticMigration(final boolean automaticMigration) {
+		this.automaticMigration = automaticMigration;
+	}
+
+}
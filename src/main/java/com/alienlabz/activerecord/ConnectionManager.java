@@ -0,0 +1,106 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import roboguice.util.Ln;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Keeps the application database open for the life of the process.</br>
+ *
+ * Every operation acquires the connection and releases it when done. Releasing never closes the database: it
+ * is only closed by an explicit call to {@link #close()}, once no operation is using it anymore.
+ *
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+@Singleton
+public class ConnectionManager {
+	private final DBOpenHelper helper;
+	private final StatementCache statements;
+	private SQLiteDatabase database;
+	private int references;
+	private boolean closeRequested;
+
+	@Inject
+	public ConnectionManager(final DBOpenHelper helper, final StatementCache statements) {
+		this.helper = helper;
+		this.statements = statements;
+	}
+
+	/**
+	 * Returns the open database, opening it if needed. Every call must be paired with {@link #release()}.
+	 *
+	 * @return	the database
+	 */
+	public synchronized SQLiteDatabase acquire() {
+		if (database == null || !database.isOpen()) {
+			Ln.d("Opening database.");
+			database = helper.getWritableDatabase();
+		}
+		references++;
+		return database;
+	}
+
+	/**
+	 * Releases a connection obtained through {@link #acquire()}.
+	 */
+	public synchronized void release() {
+		if (references == 0) {
+			throw new IllegalStateException("Connection released more times than acquired.");
+		}
+		references--;
+		if (references == 0 && closeRequested) {
+			closeDatabase();
+		}
+	}
+
+	/**
+	 * Closes the database. If any operation is still using it, the database is closed as soon as the last one
+	 * releases it, including operations that acquire it in the meantime. A later {@link #acquire()} opens it
+	 * again.
+	 */
+	public synchronized void close() {
+		if (references == 0) {
+			closeDatabase();
+		} else {
+			closeRequested = true;
+		}
+	}
+
+	/**
+	 * Returns true whether the database is currently open.
+	 *
+	 * @return	a boolean
+	 */
+	public synchronized boolean isOpen() {
+		return database != null && database.isOpen();
+	}
+
+	private void closeDatabase() {
+		closeRequested = false;
+		if (database != null) {
+			Ln.d("Closing database.");
+			statements.clear();
+			helper.close();
+			database = null;
+		}
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import android.database.Cursor;
+
+/**
+ * Binding plan between the columns of a cursor and the persistent columns of a model class.</br>
+ *
+ * The plan is resolved once per (class, projection) pair and reused for every row of every cursor with the
+ * same projection. Columns of the model that are missing from the projection are simply not bound. When the
+ * model class has a generated {@link RowMapper}, rows are mapped through it instead of reflection.
+ *
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class CursorBinding {
+	private static final Map<String, CursorBinding> cache = new ConcurrentHashMap<String, CursorBinding>();
+
+	private final ColumnMetadata[] columns;
+	private final int[] indexes;
+	private final int idIndex;
+	private final ColumnMetadata[] allColumns;
+	private final int[] allIndexes;
+	private final RowMapper<Model> rowMapper;
+
+	@SuppressWarnings("unchecked")
+	private CursorBinding(final EntityMetadata metadata, final String[] projection) {
+		final List<ColumnMetadata> bound = new ArrayList<ColumnMetadata>();
+		final List<Integer> positions = new ArrayList<Integer>();
+		int id = -1;
+
+		for (int i = 0; i < projection.length; i++) {
+			if ("_id".equals(projection[i])) {
+				id = i;
+				continue;
+			}
+			final ColumnMetadata column = metadata.getColumn(projection[i]);
+			if (column != null && column.getConverter().isReadable()) {
+				bound.add(column);
+				positions.add(i);
+			}
+		}
+
+		this.columns = bound.toArray(new ColumnMetadata[bound.size()]);
+		this.indexes = new int[positions.size()];
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = positions.get(i);
+		}
+		this.idIndex = id;
+
+		this.allColumns = metadata.getColumns();
+		this.allIndexes = new int[allColumns.length];
+		for (int i = 0; i < allColumns.length; i++) {
+			allIndexes[i] = bound.contains(allColumns[i]) ? positions.get(bound.indexOf(allColumns[i])) : -1;
+		}
+		this.rowMapper = (RowMapper<Model>) metadata.getRowMapper();
+	}
+
+	/**
+	 * Returns the binding plan for the given class and the projection of the given cursor.
+	 *
+	 * @param cls	the model class
+	 * @param cursor	the cursor
+	 * @return	the binding
+	 */
+	public static CursorBinding of(final Class<?> cls, final Cursor cursor) {
+		final String[] projection = cursor.getColumnNames();
+		final StringBuilder key = new StringBuilder(cls.getName());
+		for (String column : projection) {
+			key.append(',').append(column);
+		}
+
+		CursorBinding binding = cache.get(key.toString());
+		if (binding == null) {
+			binding = new CursorBinding(EntityMetadata.of(cls), projection);
+			cache.put(key.toString(), binding);
+		}
+		return binding;
+	}
+
+	/**
+	 * Returns every persistent column of the model class, in metadata order.
+	 *
+	 * @return	the columns
+	 */
+	ColumnMetadata[] getColumns() {
+		return allColumns;
+	}
+
+	/**
+	 * Assigns the values of the current cursor row to the given model.
+	 *
+	 * @param cursor	the cursor, positioned on a row
+	 * @param mapper	the column mapper
+	 * @param model	the model
+	 */
+	public void bind(final Cursor cursor, final ColumnMapper mapper, final Model model) {
+		if (rowMapper != null) {
+			rowMapper.map(cursor, allIndexes, allColumns, model);
+		} else {
+			for (int i = 0; i < columns.length; i++) {
+				mapper.setValueToObject(cursor, indexes[i], columns[i], model);
+			}
+		}
+		if (idIndex != -1) {
+			model._id = cursor.getInt(idIndex);
+		}
+	}
+
+}
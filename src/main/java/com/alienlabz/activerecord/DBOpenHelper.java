@@ -15,10 +15,17 @@
  */
 package com.alienlabz.activerecord;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import roboguice.util.Ln;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteDatabase.CursorFactory;
 import android.database.sqlite.SQLiteOpenHelper;
@@ -39,18 +46,35 @@ import com.google.inject.Singleton;
 public class DBOpenHelper extends SQLiteOpenHelper {
 
 	private Context context;
+	private boolean writeAheadLogging;
+	private volatile boolean writeAheadLoggingActive;
+	private List<ModelRegistry> registries;
 
 	public DBOpenHelper(Context context, String name, CursorFactory factory, int version) {
 		super(context, name, factory, version);
 		this.context = context;
 	}
 
+	public DBOpenHelper(Context context, String name, CursorFactory factory, int version, boolean writeAheadLogging) {
+		this(context, name, factory, version);
+		this.writeAheadLogging = writeAheadLogging;
+	}
+
 	@Override
 	public void onCreate(final SQLiteDatabase db) {
 		Ln.d("Creating Tables.");
-		List<Class<?>> tables = Dex.searchForClass(context, "Model");
+		List<Class<?>> tables = getModelClasses();
 		for (Class<?> table : tables) {
-			db.execSQL(Model.getSQLCreateTable(table));
+			db.execSQL(getSQLCreateTable(table));
+			for (String index : getSQLCreateIndexes(table)) {
+				db.execSQL(index);
+			}
+			for (String joinTable : getSQLCreateJoinTables(table)) {
+				db.execSQL(joinTable);
+			}
+			if (isSearchable(table)) {
+				FullTextSearch.create(db, table);
+			}
 			Ln.d("Table for class " + table.toString() + " created.");
 		}
 
@@ -58,9 +82,200 @@ public class DBOpenHelper extends SQLiteOpenHelper {
 		Beans.getEventManager().fire(new DatabaseCreated(db));
 	}
 
+	@Override
+	public void onOpen(final SQLiteDatabase db) {
+		super.onOpen(db);
+		writeAheadLoggingActive = (writeAheadLogging && !db.isReadOnly() && enableWriteAheadLogging(db));
+	}
+
+	/**
+	 * Returns true whether write-ahead logging was requested and is active on the open database. It is false
+	 * when the platform could not turn it on, such as SQLite versions older than 3.7.0, where the journal_mode
+	 * pragma ignores WAL.
+	 * 
+	 * @return	a boolean
+	 */
+	public boolean isWriteAheadLogging() {
+		return writeAheadLoggingActive;
+	}
+
+	/**
+	 * Turns on write-ahead logging. SQLiteDatabase.enableWriteAheadLogging() is only available since Android 3.0,
+	 * so it is looked up at runtime; older platforms fall back to the journal_mode pragma, whose result tells the
+	 * journal mode actually in use.
+	 * 
+	 * @param db	the database
+	 * @return	true whether write-ahead logging is active
+	 */
+	private boolean enableWriteAheadLogging(final SQLiteDatabase db) {
+		try {
+			final Method method = SQLiteDatabase.class.getMethod("enableWriteAheadLogging");
+			final Object enabled = method.invoke(db);
+			Ln.d("Write-ahead logging enabled: " + enabled);
+			return Boolean.TRUE.equals(enabled);
+		} catch (NoSuchMethodException e) {
+			Ln.d("SQLiteDatabase.enableWriteAheadLogging() not available, using PRAGMA journal_mode.");
+		} catch (Exception e) {
+			Ln.w(e, "Could not enable write-ahead logging.");
+			return false;
+		}
+
+		final Cursor cursor = db.rawQuery("PRAGMA journal_mode=WAL", null);
+		try {
+			final String mode = (cursor.moveToFirst() ? cursor.getString(0) : null);
+			Ln.d("Journal mode: " + mode);
+			return "wal".equalsIgnoreCase(mode);
+		} finally {
+			cursor.close();
+		}
+	}
+
 	@Override
 	public void onUpgrade(final SQLiteDatabase db, final int oldVersion, final int newVersion) {
 		Beans.getEventManager().fire(new DatabaseUpgrade(db, newVersion, oldVersion));
+		if (Beans.getBean(Configuration.class).isAutomaticMigration()) {
+			SchemaMigration.migrate(db, getModelClasses());
+		} else {
+			createMissingIndexes(db);
+			createMissingSearchTables(db);
+		}
+		createMissingJoinTables(db);
+	}
+
+	/**
+	 * Creates the full-text search tables and triggers that do not exist yet, rebuilding the ones whose
+	 * searchable columns changed.
+	 * 
+	 * @param db	the database
+	 */
+	public void createMissingSearchTables(final SQLiteDatabase db) {
+		for (Class<?> table : getModelClasses()) {
+			if (isSearchable(table)) {
+				FullTextSearch.create(db, table);
+			}
+		}
+	}
+
+	/**
+	 * Creates the join tables of many-to-many relationships that do not exist yet.
+	 * 
+	 * @param db	the database
+	 */
+	public void createMissingJoinTables(final SQLiteDatabase db) {
+		for (Class<?> table : getModelClasses()) {
+			for (String joinTable : getSQLCreateJoinTables(table)) {
+				db.execSQL(joinTable);
+			}
+		}
+	}
+
+	/**
+	 * Creates the declared indexes that do not exist yet. Indexes whose table or columns are missing, or whose
+	 * unique constraint is violated by existing rows, are skipped.
+	 * 
+	 * @param db	the database
+	 */
+	public void createMissingIndexes(final SQLiteDatabase db) {
+		for (Class<?> table : getModelClasses()) {
+			for (String index : getSQLCreateIndexes(table)) {
+				try {
+					db.execSQL(index);
+				} catch (SQLException e) {
+					Ln.w(e, "Could not create index: " + index);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns every model class of the application, from the generated {@link ModelRegistry} instances or else
+	 * by scanning the dex file.
+	 * 
+	 * @return	the classes
+	 */
+	List<Class<?>> getModelClasses() {
+		final List<ModelRegistry> registries = getRegistries();
+		if (registries.isEmpty()) {
+			return Dex.searchForClass(context, "Model");
+		}
+		final Set<Class<?>> classes = new LinkedHashSet<Class<?>>();
+		for (ModelRegistry registry : registries) {
+			classes.addAll(Arrays.asList(registry.getModelClasses()));
+		}
+		return new ArrayList<Class<?>>(classes);
+	}
+
+	private String getSQLCreateTable(final Class<?> cls) {
+		for (ModelRegistry registry : getRegistries()) {
+			final String statement = registry.getSQLCreateTable(cls);
+			if (statement != null) {
+				return statement;
+			}
+		}
+		return Model.getSQLCreateTable(cls);
+	}
+
+	private List<String> getSQLCreateIndexes(final Class<?> cls) {
+		for (ModelRegistry registry : getRegistries()) {
+			final String[] statements = registry.getSQLCreateIndexes(cls);
+			if (statements != null) {
+				return Arrays.asList(statements);
+			}
+		}
+		return Model.getSQLCreateIndexes(cls);
+	}
+
+	private List<String> getSQLCreateJoinTables(final Class<?> cls) {
+		for (ModelRegistry registry : getRegistries()) {
+			final String[] statements = registry.getSQLCreateJoinTables(cls);
+			if (statements != null) {
+				return Arrays.asList(statements);
+			}
+		}
+		return Model.getSQLCreateJoinTables(cls);
+	}
+
+	/**
+	 * Returns false when a registry tells the given class has no full-text searchable field, so that its
+	 * metadata is not built just to find it out.
+	 */
+	private boolean isSearchable(final Class<?> cls) {
+		for (ModelRegistry registry : getRegistries()) {
+			final String[] columns = registry.getSearchableColumns(cls);
+			if (columns != null) {
+				return columns.length > 0;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Loads the generated model registries named by the configuration, one per module compiled with the
+	 * annotation processor. The list is empty when none was found.
+	 * 
+	 * @return	the registries
+	 */
+	private synchronized List<ModelRegistry> getRegistries() {
+		if (registries == null) {
+			registries = new ArrayList<ModelRegistry>();
+			for (String entry : Beans.getBean(Configuration.class).getModelRegistry().split(",")) {
+				final String name = entry.trim();
+				if (name.length() == 0) {
+					continue;
+				}
+				try {
+					registries.add((ModelRegistry) Class.forName(name).newInstance());
+				} catch (ClassNotFoundException e) {
+					Ln.d("No generated model registry " + name + " found.");
+				} catch (Exception e) {
+					Ln.w(e, "Could not instantiate the generated model registry " + name);
+				}
+			}
+			if (registries.isEmpty()) {
+				Ln.d("No generated model registry found, scanning for model classes.");
+			}
+		}
+		return registries;
 	}
 
 }
@@ -0,0 +1,216 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.util.concurrent.Callable;
+
+import roboguice.util.Ln;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Coordinates the threads that read and write the database, according to the configured
+ * {@link ConcurrencyMode}.</br>
+ * 
+ * In {@link ConcurrencyMode#SERIALIZED} mode every work runs on the caller thread while holding one global
+ * lock. In {@link ConcurrencyMode#WAL} mode reads run on the caller thread without any lock, relying on SQLite
+ * write-ahead logging, and writes are handed to a single {@link DatabaseWriter} thread. When the database could not
+ * turn write-ahead logging on, a warning is logged and {@link ConcurrencyMode#SERIALIZED} mode is used instead,
+ * since concurrent reads would otherwise fail on the locks of the rollback journal.</br>
+ * 
+ * The tables changed by each write are collected by {@link TableChanges} and notified after it completes.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+@Singleton
+public class DatabaseAccess {
+	private static final Object Lock = new Object();
+
+	private final ConnectionManager connections;
+	private final DBOpenHelper helper;
+	private final DatabaseWriter writer;
+	private volatile ConcurrencyMode mode;
+	private volatile boolean modeChecked;
+
+	@Inject
+	public DatabaseAccess(final ConnectionManager connections, final DBOpenHelper helper,
+			final Configuration configuration) {
+		this.connections = connections;
+		this.helper = helper;
+		this.mode = configuration.getConcurrencyMode();
+		this.modeChecked = (mode != ConcurrencyMode.WAL);
+		this.writer = new DatabaseWriter(configuration.getWriteQueueSize());
+	}
+
+	/**
+	 * Returns the mode in use, which is {@link ConcurrencyMode#SERIALIZED} when {@link ConcurrencyMode#WAL} was
+	 * configured but the database could not turn write-ahead logging on. The database is opened if needed.
+	 * 
+	 * @return	the mode
+	 */
+	public ConcurrencyMode getMode() {
+		if (!modeChecked) {
+			checkMode();
+		}
+		return mode;
+	}
+
+	/**
+	 * Opens the database and falls back to {@link ConcurrencyMode#SERIALIZED} mode when write-ahead logging is
+	 * not active.
+	 */
+	private synchronized void checkMode() {
+		if (modeChecked) {
+			return;
+		}
+		connections.acquire();
+		try {
+			if (!helper.isWriteAheadLogging()) {
+				Ln.w("Write-ahead logging is not available, falling back to the SERIALIZED concurrency mode.");
+				mode = ConcurrencyMode.SERIALIZED;
+			}
+		} finally {
+			connections.release();
+		}
+		modeChecked = true;
+	}
+
+	/**
+	 * Lets the writer thread end once the writes already queued are done. The next write starts it again.
+	 */
+	public void stopWriter() {
+		writer.stop();
+	}
+
+	/**
+	 * Executes a work that only reads the database.
+	 * 
+	 * @param work	the work
+	 * @return	the work result
+	 */
+	public <T> T read(final DatabaseWork<T> work) {
+		return read(work, null);
+	}
+
+	/**
+	 * Executes a work that only reads the database, adding its lock wait and execution times to the given
+	 * timing.
+	 * 
+	 * @param work	the work
+	 * @param timing	the operation timing, or null
+	 * @return	the work result
+	 */
+	<T> T read(final DatabaseWork<T> work, final OperationTiming timing) {
+		if (getMode() == ConcurrencyMode.WAL) {
+			return run(work, timing);
+		}
+		final long requested = (timing != null ? System.nanoTime() : 0L);
+		synchronized (Lock) {
+			if (timing != null) {
+				timing.addLockWait(System.nanoTime() - requested);
+			}
+			return run(work, timing);
+		}
+	}
+
+	/**
+	 * Executes a work that changes the database.
+	 * 
+	 * @param work	the work
+	 * @return	the work result
+	 */
+	public <T> T write(final DatabaseWork<T> work) {
+		return write(work, null);
+	}
+
+	/**
+	 * Executes a work that changes the database, adding its lock wait and execution times to the given timing.
+	 * In {@link ConcurrencyMode#WAL} mode, the lock wait is the time spent in the writer queue.</br>
+	 * 
+	 * Once the work returns, one {@link com.alienlabz.activerecord.event.TableChanged} event is fired on the
+	 * caller thread for every table it changed. Writes nested in another write join its notifications.
+	 * 
+	 * @param work	the work
+	 * @param timing	the operation timing, or null
+	 * @return	the work result
+	 */
+	<T> T write(final DatabaseWork<T> work, final OperationTiming timing) {
+		if (TableChanges.isCollecting()) {
+			return run(work, timing);
+		}
+		final TableChanges changes = new TableChanges();
+		try {
+			return write(work, timing, changes);
+		} finally {
+			changes.publish();
+		}
+	}
+
+	private <T> T write(final DatabaseWork<T> work, final OperationTiming timing, final TableChanges changes) {
+		final long requested = (timing != null ? System.nanoTime() : 0L);
+		if (getMode() == ConcurrencyMode.WAL) {
+			if (writer.isWriterThread()) {
+				return collect(work, timing, changes);
+			}
+			return writer.execute(new Callable<T>() {
+
+				public T call() {
+					if (timing != null) {
+						timing.addLockWait(System.nanoTime() - requested);
+					}
+					return collect(work, timing, changes);
+				}
+
+			});
+		}
+		synchronized (Lock) {
+			if (timing != null) {
+				timing.addLockWait(System.nanoTime() - requested);
+			}
+			return collect(work, timing, changes);
+		}
+	}
+
+	private <T> T collect(final DatabaseWork<T> work, final OperationTiming timing, final TableChanges changes) {
+		changes.begin();
+		try {
+			return run(work, timing);
+		} finally {
+			changes.end();
+		}
+	}
+
+	private <T> T run(final DatabaseWork<T> work, final OperationTiming timing) {
+		final SQLiteDatabase database = connections.acquire();
+		try {
+			if (timing == null) {
+				return work.execute(database);
+			}
+			final long start = System.nanoTime();
+			try {
+				return work.execute(database);
+			} finally {
+				timing.addExecution(System.nanoTime() - start);
+			}
+		} finally {
+			connections.release();
+		}
+	}
+
+}
@@ -0,0 +1,46 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Body of a {@link DatabaseTask}. Cursors opened by the body should be passed through {@link #track(ModelCursor)}
+ * so that cancelling the task stops reading them.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ * @param <T>	the result type
+ */
+abstract class DatabaseCall<T> implements Callable<T> {
+	private DatabaseTask<T> task;
+
+	void setTask(final DatabaseTask<T> task) {
+		this.task = task;
+	}
+
+	/**
+	 * Registers the given cursor as the one being read by this call.
+	 * 
+	 * @param cursor	the cursor
+	 * @return	the same cursor
+	 */
+	protected <M extends Model> ModelCursor<M> track(final ModelCursor<M> cursor) {
+		task.attach(cursor);
+		return cursor;
+	}
+
+}
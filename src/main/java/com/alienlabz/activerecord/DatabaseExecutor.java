@@ -0,0 +1,103 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Runs the asynchronous database operations on dedicated threads.</br>
+ * 
+ * Reads and writes have separate lanes, so queued writes never delay queries: reads run on a small pool of
+ * threads, writes on one single thread, in submission order. Both lanes have bounded queues; submitting to a
+ * full lane fails with a {@link java.util.concurrent.RejectedExecutionException} instead of blocking the
+ * caller, which is usually the main thread. Operations still go through {@link DatabaseAccess}, so the
+ * configured {@link ConcurrencyMode} applies to them as well.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+@Singleton
+public class DatabaseExecutor {
+	private final ThreadPoolExecutor readers;
+	private final ThreadPoolExecutor writer;
+
+	@Inject
+	public DatabaseExecutor(final Configuration configuration) {
+		this(configuration.getAsyncReadThreads(), configuration.getAsyncQueueSize());
+	}
+
+	public DatabaseExecutor(final int readThreads, final int queueSize) {
+		this.readers = createLane("ActiveRecord-AsyncReader", readThreads, queueSize);
+		this.writer = createLane("ActiveRecord-AsyncWriter", 1, queueSize);
+	}
+
+	/**
+	 * Submits an operation that only reads the database.
+	 * 
+	 * @param call	the operation
+	 * @param callback	notified of the outcome, or null
+	 * @return	the pending result
+	 */
+	<T> Future<T> read(final DatabaseCall<T> call, final Callback<T> callback) {
+		final DatabaseTask<T> task = new DatabaseTask<T>(call, callback);
+		readers.execute(task);
+		return task;
+	}
+
+	/**
+	 * Submits an operation that writes the database.
+	 * 
+	 * @param call	the operation
+	 * @param callback	notified of the outcome, or null
+	 * @return	the pending result
+	 */
+	<T> Future<T> write(final DatabaseCall<T> call, final Callback<T> callback) {
+		final DatabaseTask<T> task = new DatabaseTask<T>(call, callback);
+		writer.execute(task);
+		return task;
+	}
+
+	/**
+	 * Stops accepting operations. Operations already submitted are still executed.
+	 */
+	public void shutdown() {
+		readers.shutdown();
+		writer.shutdown();
+	}
+
+	private static ThreadPoolExecutor createLane(final String name, final int threads, final int queueSize) {
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					public Thread newThread(final Runnable runnable) {
+						final Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+
+				});
+	}
+
+}
@@ -0,0 +1,46 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+/**
+ * Listener notified of every database operation, to find out where database time goes.</br>
+ * 
+ * Register one with {@link Model#setDatabaseMetrics(DatabaseMetrics)}. Listeners are called on the thread that
+ * ran the operation, once it is finished, so they must be fast and thread safe. Queries returning a lazy
+ * {@link ModelCursor} are reported when the cursor is closed. When no listener is registered, operations are
+ * not timed at all.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ * @see HistogramMetrics
+ */
+public interface DatabaseMetrics {
+
+	/**
+	 * Called when a database operation finishes.
+	 * 
+	 * @param type	the kind of operation
+	 * @param table	the table, or null when unknown
+	 * @param sql	the SQL template, with ? placeholders for the parameters, or null for batches
+	 * @param lockWaitNanos	time spent waiting for the database lock or the writer thread
+	 * @param executionNanos	time spent executing the statement and stepping through the result
+	 * @param rows	number of rows read or written
+	 * @param mappingNanos	time spent mapping rows to models
+	 */
+	void onOperation(OperationType type, String table, String sql, long lockWaitNanos, long executionNanos,
+			int rows, long mappingNanos);
+
+}
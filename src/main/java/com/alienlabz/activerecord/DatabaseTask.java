@@ -0,0 +1,94 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import roboguice.util.Ln;
+
+/**
+ * Asynchronous database operation, as returned by the {@link DatabaseExecutor}.</br>
+ * 
+ * Cancelling the task stops the iteration of the cursor it is reading, which is then closed by the database
+ * thread. A cursor produced as the task result is closed when the task was cancelled before the caller could
+ * get it.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ * @param <T>	the result type
+ */
+class DatabaseTask<T> extends FutureTask<T> {
+	private final Callback<T> callback;
+	private volatile ModelCursor<?> cursor;
+
+	DatabaseTask(final DatabaseCall<T> call, final Callback<T> callback) {
+		super(call);
+		this.callback = callback;
+		call.setTask(this);
+	}
+
+	void attach(final ModelCursor<?> cursor) {
+		this.cursor = cursor;
+		if (isCancelled()) {
+			cursor.cancel();
+		}
+	}
+
+	@Override
+	public boolean cancel(final boolean mayInterruptIfRunning) {
+		final boolean cancelled = super.cancel(mayInterruptIfRunning);
+		final ModelCursor<?> current = cursor;
+		if (cancelled && current != null) {
+			current.cancel();
+		}
+		return cancelled;
+	}
+
+	@Override
+	protected void set(final T value) {
+		super.set(value);
+		// The task was cancelled while the result was being produced, so nobody will ever receive it.
+		if (isCancelled() && value instanceof Closeable) {
+			try {
+				((Closeable) value).close();
+			} catch (IOException e) {
+				Ln.w(e, "Could not close the result of a cancelled task.");
+			}
+		}
+	}
+
+	@Override
+	protected void done() {
+		if (callback == null || isCancelled()) {
+			return;
+		}
+		final T result;
+		try {
+			result = get();
+		} catch (ExecutionException e) {
+			callback.onFailure(e.getCause());
+			return;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		callback.onSuccess(result);
+	}
+
+}
@@ -0,0 +1,31 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * A unit of work executed against the database by {@link DatabaseAccess}.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ * @param <T>	the result type
+ */
+public interface DatabaseWork<T> {
+
+	T execute(SQLiteDatabase database);
+
+}
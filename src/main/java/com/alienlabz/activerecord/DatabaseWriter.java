@@ -0,0 +1,157 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import roboguice.util.Ln;
+
+/**
+ * Single thread that executes every database write, fed by a bounded queue.</br>
+ * 
+ * When the queue is full, callers block until the writer catches up. The thread is started by the first task
+ * and runs until {@link #stop()}; the next task after it starts a new one.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+class DatabaseWriter {
+	private static final FutureTask<Void> STOP = new FutureTask<Void>(new Callable<Void>() {
+
+		public Void call() {
+			return null;
+		}
+
+	});
+
+	private final BlockingQueue<FutureTask<?>> queue;
+	private Thread thread;
+
+	DatabaseWriter(final int capacity) {
+		this.queue = new ArrayBlockingQueue<FutureTask<?>>(capacity);
+	}
+
+	/**
+	 * Returns true whether the current thread is the writer thread.
+	 * 
+	 * @return	a boolean
+	 */
+	synchronized boolean isWriterThread() {
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * Queues the given task, waiting for room in the queue if needed.
+	 * 
+	 * @param task	the task
+	 * @return	the queued task
+	 */
+	<T> FutureTask<T> submit(final Callable<T> task) {
+		final FutureTask<T> future = new FutureTask<T>(task);
+		put(future);
+		// Started after the task is queued, so that a thread stopping meanwhile cannot leave it behind.
+		start();
+		return future;
+	}
+
+	/**
+	 * Lets the writer thread end once the tasks already queued are done. It has no effect when the thread is
+	 * not running.
+	 */
+	void stop() {
+		synchronized (this) {
+			if (thread == null) {
+				return;
+			}
+		}
+		put(STOP);
+	}
+
+	private void put(final FutureTask<?> task) {
+		try {
+			queue.put(task);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Queues the given task and waits for its result. Runtime exceptions raised by the task are rethrown to the
+	 * caller.
+	 * 
+	 * @param task	the task
+	 * @return	the task result
+	 */
+	<T> T execute(final Callable<T> task) {
+		final FutureTask<T> future = submit(task);
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+	private synchronized void start() {
+		if (thread != null) {
+			return;
+		}
+		thread = new Thread(new Runnable() {
+
+			public void run() {
+				while (true) {
+					try {
+						final FutureTask<?> task = queue.take();
+						if (task != STOP) {
+							task.run();
+							continue;
+						}
+						synchronized (DatabaseWriter.this) {
+							if (queue.isEmpty()) {
+								thread = null;
+								return;
+							}
+						}
+					} catch (InterruptedException e) {
+						Ln.w("Database writer interrupted.");
+						synchronized (DatabaseWriter.this) {
+							thread = null;
+						}
+						return;
+					}
+				}
+			}
+
+		}, "ActiveRecord-Writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+}
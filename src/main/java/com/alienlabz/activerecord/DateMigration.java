@@ -0,0 +1,71 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import roboguice.util.Ln;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Converts date columns written as text to {@link DateStorage#EPOCH_MILLIS}.</br>
+ * 
+ * Run it once, from a {@link com.alienlabz.activerecord.event.DatabaseUpgrade} observer, after switching
+ * existing date fields to epoch millis storage:
+ * 
+ * <pre>
+ * public void databaseUpgrade(&#064;Observes DatabaseUpgrade event) {
+ * 	DateMigration.toEpochMillis(event.getDatabase(), Contact.class);
+ * }
+ * </pre>
+ * 
+ * Only rows still holding text are converted, so running it again has no effect.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public final class DateMigration {
+
+	private DateMigration() {
+	}
+
+	/**
+	 * Converts every date column of the given class stored as {@link DateStorage#EPOCH_MILLIS}.
+	 * 
+	 * @param db	the database
+	 * @param cls	the model class
+	 */
+	public static void toEpochMillis(final SQLiteDatabase db, final Class<?> cls) {
+		final EntityMetadata metadata = EntityMetadata.of(cls);
+		for (ColumnMetadata column : metadata.getColumns()) {
+			if (column.getConverter() == TypeConverters.EPOCH_DATE) {
+				toEpochMillis(db, metadata.getTableName(), column.getName());
+			}
+		}
+	}
+
+	/**
+	 * Converts the given column from "yyyy-MM-dd HH:mm:ss" local time text to epoch millis.
+	 * 
+	 * @param db	the database
+	 * @param table	the table name
+	 * @param column	the column name
+	 */
+	public static void toEpochMillis(final SQLiteDatabase db, final String table, final String column) {
+		Ln.d("Converting " + table + "." + column + " to epoch millis.");
+		db.execSQL("UPDATE " + table + " SET " + column + " = CAST(strftime('%s', " + column
+				+ ", 'utc') AS INTEGER) * 1000 WHERE typeof(" + column + ") = 'text'");
+	}
+
+}
@@ -0,0 +1,40 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+/**
+ * How java.util.Date fields are stored.</br>
+ * 
+ * Date columns are always declared as DATE, whose numeric affinity keeps both representations with their
+ * natural storage class, so changing the strategy does not change the table definition.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public enum DateStorage {
+
+	/**
+	 * "yyyy-MM-dd HH:mm:ss" text, in the device time zone. Formatted on every write and parsed on every read.
+	 */
+	TEXT,
+
+	/**
+	 * INTEGER milliseconds since the epoch. Read and written without any formatting, and compared as numbers by
+	 * range queries.
+	 */
+	EPOCH_MILLIS
+
+}
@@ -0,0 +1,210 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import com.alienlabz.activerecord.annotation.IdentityMap;
+import com.alienlabz.activerecord.annotation.IdentityMap.References;
+
+/**
+ * Identity map of one model class: instances already loaded or saved, keyed by id.</br>
+ * 
+ * Created only for classes annotated with {@link IdentityMap}.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class EntityCache {
+	private static final List<EntityCache> caches = new CopyOnWriteArrayList<EntityCache>();
+
+	private final String tableName;
+	private final Pattern tablePattern;
+	private final References references;
+	private final Map<Integer, Object> entries;
+	private long hits;
+	private long misses;
+	private long version;
+
+	EntityCache(final String tableName, final IdentityMap config) {
+		this.tableName = tableName;
+		this.tablePattern = Pattern.compile("\\b" + Pattern.quote(tableName) + "\\b", Pattern.CASE_INSENSITIVE);
+		this.references = config.references();
+
+		final int maxSize = config.maxSize();
+		this.entries = new LinkedHashMap<Integer, Object>(16, 0.75f, config.lru()) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Integer, Object> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Registers the given identity map, so that it is invalidated by native SQL statements on its table.
+	 * 
+	 * @param cache	the identity map
+	 */
+	static void register(final EntityCache cache) {
+		caches.add(cache);
+	}
+
+	/**
+	 * Empties the identity map of every table referenced by the given SQL statement.
+	 * 
+	 * @param sql	the statement
+	 */
+	static void invalidate(final String sql) {
+		for (EntityCache cache : caches) {
+			if (cache.tablePattern.matcher(sql).find()) {
+				cache.clear();
+			}
+		}
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * Returns the cached instance with the given id, or null.
+	 * 
+	 * @param id	the id
+	 * @return	the model
+	 */
+	public synchronized Model get(final Integer id) {
+		final Model value = peek(id);
+		if (value == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the cached instance with the given id, or null, without counting the lookup in the hit rate. Used
+	 * for lookups that are not loads by id, such as resolving references.
+	 * 
+	 * @param id	the id
+	 * @return	the model
+	 */
+	synchronized Model peek(final Integer id) {
+		Object value = entries.get(id);
+		if (value instanceof Reference) {
+			value = ((Reference<?>) value).get();
+			if (value == null) {
+				entries.remove(id);
+			}
+		}
+		return (Model) value;
+	}
+
+	/**
+	 * Returns the version of this identity map, which changes whenever instances are removed from it. Read it
+	 * before querying rows that are then cached through {@link #share(Model, long)}.
+	 * 
+	 * @return	the version
+	 */
+	synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Caches a model just read from the database. When an instance with the same id is already cached, that
+	 * instance is returned instead. When instances were removed since the given version was read, the row may
+	 * have been deleted after it was read, so the model is returned without being cached.
+	 * 
+	 * @param model	the model read
+	 * @param readVersion	the version read before querying the model
+	 * @return	the instance to use
+	 */
+	synchronized Model share(final Model model, final long readVersion) {
+		final Model cached = peek(model._id);
+		if (cached != null) {
+			return cached;
+		}
+		if (readVersion == version) {
+			put(model);
+		}
+		return model;
+	}
+
+	/**
+	 * Caches the given saved model, replacing any other instance with the same id.
+	 * 
+	 * @param model	the model
+	 */
+	public synchronized void put(final Model model) {
+		if (model._id == null) {
+			return;
+		}
+		final Object value;
+		switch (references) {
+		case SOFT:
+			value = new SoftReference<Model>(model);
+			break;
+		case WEAK:
+			value = new WeakReference<Model>(model);
+			break;
+		default:
+			value = model;
+		}
+		entries.put(model._id, value);
+	}
+
+	public synchronized void remove(final Integer id) {
+		entries.remove(id);
+		version++;
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		version++;
+	}
+
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the fraction of lookups served from memory, between 0 and 1.
+	 * 
+	 * @return	a double
+	 */
+	public synchronized double getHitRate() {
+		final long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+}
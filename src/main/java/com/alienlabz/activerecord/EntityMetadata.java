@@ -0,0 +1,399 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import roboguice.util.Ln;
+import android.database.Cursor;
+
+import com.alienlabz.activerecord.annotation.FullTextSearchable;
+import com.alienlabz.activerecord.annotation.IdentityMap;
+import com.alienlabz.activerecord.annotation.Index;
+import com.alienlabz.activerecord.annotation.Indexes;
+import com.alienlabz.activerecord.annotation.NaturalKey;
+import com.alienlabz.activerecord.annotation.StoreDateAs;
+import com.alienlabz.annotation.Transient;
+import com.alienlabz.util.Beans;
+import com.alienlabz.util.Reflection;
+
+/**
+ * Mapping information of a model class, built once per class and shared by every operation on it.</br>
+ *
+ * Holds the table name and the ordered persistent columns, each one with its field already made accessible
+ * and its {@link TypeConverter} already resolved.
+ *
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class EntityMetadata {
+	private static final ConcurrentMap<Class<?>, EntityMetadata> registry = new ConcurrentHashMap<Class<?>, EntityMetadata>();
+
+	private final Class<?> type;
+	private final String tableName;
+	private final ColumnMetadata[] columns;
+	private final String[] columnNames;
+	private final Map<String, ColumnMetadata> columnsByName;
+	private final EntityCache cache;
+	private final IndexMetadata[] indexes;
+	private final ColumnMetadata[] naturalKey;
+	private final ColumnMetadata[] searchableColumns;
+	private final Map<String, RelationMetadata> relations;
+	private final RowMapper<?> rowMapper;
+	private final ValuesBinder<?> valuesBinder;
+	private final boolean customTransform;
+
+	private EntityMetadata(final Class<?> type) {
+		this.type = type;
+		this.tableName = Reflection.getSimpleClassName(type);
+
+		final DateStorage dateStorage = Beans.getBean(Configuration.class).getDateStorage();
+		final List<ColumnMetadata> list = new ArrayList<ColumnMetadata>();
+		final Map<String, RelationMetadata> relationsByName = new LinkedHashMap<String, RelationMetadata>();
+		final Field[] fields = Reflection.getNonStaticDeclaredFields(type);
+		for (Field field : fields) {
+			if (isTransient(field)) {
+				continue;
+			}
+			if (isMultiValued(field)) {
+				final RelationMetadata relation = RelationMetadata.of(type, tableName, field);
+				if (relation != null) {
+					relationsByName.put(relation.getName(), relation);
+				}
+				continue;
+			}
+			final StoreDateAs storeDateAs = field.getAnnotation(StoreDateAs.class);
+			final DateStorage storage = (storeDateAs != null ? storeDateAs.value() : dateStorage);
+			list.add(new ColumnMetadata(field, TypeConverters.forType(field.getType(), storage)));
+		}
+
+		final Object mapper = findGeneratedMapper(type, list);
+		if (mapper != null) {
+			final Map<String, ColumnMetadata> byName = new HashMap<String, ColumnMetadata>();
+			for (ColumnMetadata column : list) {
+				byName.put(column.getName(), column);
+			}
+			list.clear();
+			for (String name : ((RowMapper<?>) mapper).getColumnNames()) {
+				list.add(byName.get(name));
+			}
+		}
+		this.rowMapper = (RowMapper<?>) mapper;
+		this.valuesBinder = (ValuesBinder<?>) mapper;
+
+		this.columns = list.toArray(new ColumnMetadata[list.size()]);
+		this.columnNames = new String[columns.length];
+		this.columnsByName = new HashMap<String, ColumnMetadata>();
+		for (int i = 0; i < columns.length; i++) {
+			columnNames[i] = columns[i].getName();
+			columnsByName.put(columns[i].getName(), columns[i]);
+		}
+
+		final List<IndexMetadata> indexList = new ArrayList<IndexMetadata>();
+		for (ColumnMetadata column : columns) {
+			final Index index = column.getField().getAnnotation(Index.class);
+			if (index != null) {
+				indexList.add(new IndexMetadata(index.name(), tableName, new String[] { column.getName() },
+						index.unique()));
+			}
+		}
+		final Indexes classIndexes = type.getAnnotation(Indexes.class);
+		if (classIndexes != null) {
+			for (Index index : classIndexes.value()) {
+				indexList.add(new IndexMetadata(index.name(), tableName, index.columns(), index.unique()));
+			}
+		}
+
+		final List<ColumnMetadata> keyList = new ArrayList<ColumnMetadata>();
+		for (ColumnMetadata column : columns) {
+			if (column.getField().isAnnotationPresent(NaturalKey.class)) {
+				keyList.add(column);
+			}
+		}
+		this.naturalKey = keyList.toArray(new ColumnMetadata[keyList.size()]);
+		if (naturalKey.length > 0) {
+			final String[] keyColumns = new String[naturalKey.length];
+			for (int i = 0; i < naturalKey.length; i++) {
+				keyColumns[i] = naturalKey[i].getName();
+			}
+			indexList.add(new IndexMetadata(null, tableName, keyColumns, true));
+		}
+		this.indexes = indexList.toArray(new IndexMetadata[indexList.size()]);
+
+		final List<ColumnMetadata> searchableList = new ArrayList<ColumnMetadata>();
+		for (ColumnMetadata column : columns) {
+			if (column.getField().isAnnotationPresent(FullTextSearchable.class)) {
+				if (!String.class.equals(column.getField().getType())) {
+					throw new IllegalArgumentException("Full-text searchable field " + column.getField()
+							+ " must be a String.");
+				}
+				searchableList.add(column);
+			}
+		}
+		this.searchableColumns = searchableList.toArray(new ColumnMetadata[searchableList.size()]);
+		this.relations = Collections.unmodifiableMap(relationsByName);
+
+		final IdentityMap identityMap = type.getAnnotation(IdentityMap.class);
+		this.cache = (identityMap != null ? new EntityCache(tableName, identityMap) : null);
+		this.customTransform = overridesTransform(type);
+	}
+
+	/**
+	 * Returns the metadata of the given model class, building it on first use.
+	 *
+	 * @param cls	the class
+	 * @return	the metadata
+	 */
+	public static EntityMetadata of(final Class<?> cls) {
+		EntityMetadata metadata = registry.get(cls);
+		if (metadata == null) {
+			final EntityMetadata created = new EntityMetadata(cls);
+			metadata = registry.putIfAbsent(cls, created);
+			if (metadata == null) {
+				metadata = created;
+				if (created.cache != null) {
+					EntityCache.register(created.cache);
+				}
+				TableChanges.register(created);
+			}
+		}
+		return metadata;
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	/**
+	 * Returns the persistent columns, in declaration order. The returned array must not be modified.
+	 *
+	 * @return	the columns
+	 */
+	public ColumnMetadata[] getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Returns the persistent column names, in declaration order. The returned array must not be modified.
+	 *
+	 * @return	the names
+	 */
+	public String[] getColumnNames() {
+		return columnNames;
+	}
+
+	/**
+	 * Returns the indexes declared through {@link Index} and {@link Indexes}. The returned array must not be
+	 * modified.
+	 *
+	 * @return	the indexes
+	 */
+	public IndexMetadata[] getIndexes() {
+		return indexes;
+	}
+
+	/**
+	 * Returns the columns declared with {@link NaturalKey}, in column order. The returned array must not be
+	 * modified.
+	 *
+	 * @return	the columns, empty when the class has no natural key
+	 */
+	public ColumnMetadata[] getNaturalKey() {
+		return naturalKey;
+	}
+
+	/**
+	 * Returns the columns declared with {@link FullTextSearchable}, in column order. The returned array must not
+	 * be modified.
+	 *
+	 * @return	the columns, empty when the class is not searchable
+	 */
+	public ColumnMetadata[] getSearchableColumns() {
+		return searchableColumns;
+	}
+
+	/**
+	 * Returns the to-many relationships declared through {@link com.alienlabz.activerecord.annotation.HasMany}
+	 * and {@link com.alienlabz.activerecord.annotation.ManyToMany}, by field name.
+	 *
+	 * @return	the relationships
+	 */
+	public Map<String, RelationMetadata> getRelations() {
+		return relations;
+	}
+
+	/**
+	 * Returns the identity map of this class, or null when the class is not annotated with {@link IdentityMap}.
+	 *
+	 * @return	the identity map
+	 */
+	public EntityCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Returns the generated row mapper of this class, or null when models are mapped through reflection.
+	 *
+	 * @return	the mapper
+	 */
+	public RowMapper<?> getRowMapper() {
+		return rowMapper;
+	}
+
+	/**
+	 * Returns the generated values binder of this class, or null when values are read through reflection.
+	 *
+	 * @return	the binder
+	 */
+	public ValuesBinder<?> getValuesBinder() {
+		return valuesBinder;
+	}
+
+	/**
+	 * Tells whether the class, or one of its superclasses below {@link Model}, overrides
+	 * {@link Model#transform(Cursor)}. Such classes must have every row mapped through their override.
+	 *
+	 * @return	true when the class maps rows itself
+	 */
+	public boolean hasCustomTransform() {
+		return customTransform;
+	}
+
+	/**
+	 * Returns the column with the given name, or null if the class has no such persistent column.
+	 *
+	 * @param name	the column name
+	 * @return	the column
+	 */
+	public ColumnMetadata getColumn(final String name) {
+		return columnsByName.get(name);
+	}
+
+	/**
+	 * Looks up the mapper generated at compile time for the given class. The mapper is discarded when it does
+	 * not handle exactly the persistent columns found at runtime, so that a stale generated class never maps
+	 * the wrong fields.
+	 *
+	 * @param type	the model class
+	 * @param columns	the persistent columns found through reflection
+	 * @return	the mapper, or null
+	 */
+	private static Object findGeneratedMapper(final Class<?> type, final List<ColumnMetadata> columns) {
+		final Object mapper;
+		try {
+			mapper = Class.forName(type.getName() + "$$Mapper", true, type.getClassLoader()).newInstance();
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (Exception e) {
+			Ln.w(e, "Could not instantiate the generated mapper of " + type.getName());
+			return null;
+		}
+		if (!(mapper instanceof RowMapper) || !(mapper instanceof ValuesBinder)) {
+			return null;
+		}
+
+		final Set<String> expected = new HashSet<String>();
+		for (ColumnMetadata column : columns) {
+			expected.add(column.getName());
+		}
+		final String[] names = ((RowMapper<?>) mapper).getColumnNames();
+		if (names.length != expected.size() || !expected.containsAll(Arrays.asList(names))) {
+			Ln.w("Generated mapper of " + type.getName() + " is out of date, using reflection.");
+			return null;
+		}
+		return mapper;
+	}
+
+	/**
+	 * Returns true whether the given field type is a core collection interface.
+	 *
+	 * @param field	the field
+	 * @return	a boolean
+	 */
+	/**
+	 * Returns true whether the given class overrides {@link Model#transform(Cursor)}.
+	 *
+	 * @param type	the model class
+	 * @return	a boolean
+	 */
+	private static boolean overridesTransform(final Class<?> type) {
+		for (Class<?> cls = type; cls != null && !Model.class.equals(cls); cls = cls.getSuperclass()) {
+			try {
+				cls.getDeclaredMethod("transform", Cursor.class);
+				return true;
+			} catch (NoSuchMethodException e) {
+				continue;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isCollection(final Field field) {
+		if (Collection.class.isAssignableFrom(field.getType()))
+			return true;
+		if (Map.class.isAssignableFrom(field.getType()))
+			return true;
+		return false;
+	}
+
+	/**
+	 * Returns true whether the given field type is an array.
+	 *
+	 * @param field	the field
+	 * @return	a boolean
+	 */
+	private static boolean isArray(final Field field) {
+		return field.getType().isArray();
+	}
+
+	/**
+	 * Returns true whether the given field type is multi-valued.
+	 *
+	 * @param field	the field
+	 * @return	a boolean
+	 */
+	private static boolean isMultiValued(final Field field) {
+		return isCollection(field) || isArray(field);
+	}
+
+	/**
+	 * Returns true whether the given field is signed as transient.
+	 *
+	 * @param field	the field
+	 * @return	a boolean
+	 */
+	private static boolean isTransient(final Field field) {
+		return Modifier.isTransient(field.getModifiers()) || field.isAnnotationPresent(Transient.class);
+	}
+
+}
@@ -0,0 +1,158 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import roboguice.util.Ln;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.alienlabz.activerecord.annotation.FullTextSearchable;
+
+/**
+ * Full-text search tables of the model classes with {@link FullTextSearchable} fields.</br>
+ * 
+ * Each such class gets a "_fts" virtual table whose docid is the model id and whose columns are copies of the
+ * searchable columns. FTS4 is used when the platform SQLite has it, FTS3 otherwise. Triggers on the model table
+ * keep the copies in sync on insert, on update of the searchable columns and on delete, so no model code writes
+ * to it.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public final class FullTextSearch {
+	private static final String SUFFIX = "_fts";
+
+	private FullTextSearch() {
+	}
+
+	/**
+	 * Creates the full-text search table and triggers of the given class, when it has searchable fields and they
+	 * do not exist yet. A table whose columns no longer match the searchable fields is dropped and created
+	 * again. A new table is filled with the existing rows. The update trigger is always created again, so that
+	 * it only fires on updates of the current searchable columns.
+	 * 
+	 * @param db	the database
+	 * @param cls	the model class
+	 */
+	public static void create(final SQLiteDatabase db, final Class<?> cls) {
+		final EntityMetadata metadata = EntityMetadata.of(cls);
+		final ColumnMetadata[] columns = metadata.getSearchableColumns();
+		if (columns.length == 0) {
+			return;
+		}
+
+		final String table = metadata.getTableName();
+		final String searchTable = getTableName(metadata);
+		final List<String> names = new ArrayList<String>();
+		for (ColumnMetadata column : columns) {
+			names.add(column.getName());
+		}
+		final String list = join(names, "");
+		final String newValues = join(names, "new.");
+
+		final List<String> existing = getColumns(db, searchTable);
+		if (!existing.isEmpty() && !existing.equals(names)) {
+			Ln.d("Searchable columns of " + table + " changed, rebuilding " + searchTable + ".");
+			drop(db, metadata);
+			existing.clear();
+		}
+
+		if (existing.isEmpty()) {
+			try {
+				db.execSQL("CREATE VIRTUAL TABLE " + searchTable + " USING fts4(" + list + ")");
+			} catch (SQLException e) {
+				Ln.d("FTS4 not available, using FTS3 for " + searchTable + ".");
+				db.execSQL("CREATE VIRTUAL TABLE " + searchTable + " USING fts3(" + list + ")");
+			}
+			db.execSQL("INSERT INTO " + searchTable + " (docid, " + list + ") SELECT _id, " + list + " FROM "
+					+ table);
+		}
+
+		final String insert = "INSERT OR REPLACE INTO " + searchTable + " (docid, " + list + ") VALUES (new._id, "
+				+ newValues + ");";
+		db.execSQL("CREATE TRIGGER IF NOT EXISTS " + searchTable + "_insert AFTER INSERT ON " + table + " BEGIN "
+				+ insert + " END");
+		db.execSQL("DROP TRIGGER IF EXISTS " + searchTable + "_update");
+		db.execSQL("CREATE TRIGGER " + searchTable + "_update AFTER UPDATE OF " + list + " ON " + table + " BEGIN "
+				+ "DELETE FROM " + searchTable + " WHERE docid = old._id; " + insert + " END");
+		db.execSQL("CREATE TRIGGER IF NOT EXISTS " + searchTable + "_delete AFTER DELETE ON " + table + " BEGIN "
+				+ "DELETE FROM " + searchTable + " WHERE docid = old._id; END");
+	}
+
+	/**
+	 * Generates the search query of the given class: the model rows matching one MATCH parameter, the ones with
+	 * the most matches first. FTS3 has no built-in relevance function, so the matches are counted from
+	 * offsets(), which returns four space-separated integers per matching term.
+	 * 
+	 * @param metadata	the class metadata
+	 * @return	the statement
+	 */
+	static String getSQLSearch(final EntityMetadata metadata) {
+		if (metadata.getSearchableColumns().length == 0) {
+			throw new IllegalArgumentException("Class " + metadata.getType().getName()
+					+ " has no full-text searchable field.");
+		}
+		final String table = metadata.getTableName();
+		final String searchTable = getTableName(metadata);
+		return "SELECT " + table + ".* FROM " + table + " JOIN (SELECT docid, offsets(" + searchTable
+				+ ") AS offsets FROM " + searchTable + " WHERE " + searchTable + " MATCH ?) AS matches ON " + table
+				+ "._id = matches.docid ORDER BY (length(matches.offsets) - length(replace(matches.offsets, ' ', ''))"
+				+ " + 1) / 4 DESC";
+	}
+
+	private static String getTableName(final EntityMetadata metadata) {
+		return metadata.getTableName() + SUFFIX;
+	}
+
+	private static void drop(final SQLiteDatabase db, final EntityMetadata metadata) {
+		final String searchTable = getTableName(metadata);
+		for (String trigger : new String[] { "_insert", "_update", "_delete" }) {
+			db.execSQL("DROP TRIGGER IF EXISTS " + searchTable + trigger);
+		}
+		db.execSQL("DROP TABLE IF EXISTS " + searchTable);
+	}
+
+	private static List<String> getColumns(final SQLiteDatabase db, final String table) {
+		final List<String> columns = new ArrayList<String>();
+		final Cursor cursor = db.rawQuery("PRAGMA table_info(" + table + ")", null);
+		try {
+			final int name = cursor.getColumnIndex("name");
+			while (cursor.moveToNext()) {
+				columns.add(cursor.getString(name));
+			}
+		} finally {
+			cursor.close();
+		}
+		return columns;
+	}
+
+	private static String join(final List<String> names, final String prefix) {
+		final StringBuilder joined = new StringBuilder();
+		for (int i = 0; i < names.size(); i++) {
+			if (i > 0) {
+				joined.append(", ");
+			}
+			joined.append(prefix);
+			joined.append(names.get(i));
+		}
+		return joined.toString();
+	}
+
+}
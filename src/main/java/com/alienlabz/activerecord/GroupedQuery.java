@@ -0,0 +1,94 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.util.Map;
+
+/**
+ * Aggregates of a {@link Query} computed per distinct value of one column, with GROUP BY. Every aggregate runs
+ * in SQLite and returns a small map from the group value, converted to the field type, to the aggregate value;
+ * no model is created. The maps are ordered by group value.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ * @param <T>	the model type
+ */
+public class GroupedQuery<T extends Model> {
+	private final Query<T> query;
+	private final String group;
+
+	GroupedQuery(final Query<T> query, final String group) {
+		this.query = query;
+		this.group = group;
+	}
+
+	/**
+	 * Counts the rows of each group.
+	 * 
+	 * @return	the number of rows by group value
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public <K> Map<K, Integer> count() {
+		return (Map) query.aggregate("count", "1", TypeConverters.INTEGER, group);
+	}
+
+	/**
+	 * Sums the given column in each group.
+	 * 
+	 * @param column	the column name
+	 * @return	the sum by group value
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public <K> Map<K, Double> sum(final String column) {
+		query.checkColumn(column);
+		return (Map) query.aggregate("total", column, TypeConverters.DOUBLE, group);
+	}
+
+	/**
+	 * Averages the given column in each group.
+	 * 
+	 * @param column	the column name
+	 * @return	the average by group value, null for groups where the column is always null
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public <K> Map<K, Double> avg(final String column) {
+		query.checkColumn(column);
+		return (Map) query.aggregate("avg", column, TypeConverters.DOUBLE, group);
+	}
+
+	/**
+	 * Returns the smallest value of the given column in each group, converted to the field type.
+	 * 
+	 * @param column	the column name
+	 * @return	the smallest value by group value
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public <K, V> Map<K, V> min(final String column) {
+		return (Map) query.aggregate("min", column, query.getReader(column), group);
+	}
+
+	/**
+	 * Returns the largest value of the given column in each group, converted to the field type.
+	 * 
+	 * @param column	the column name
+	 * @return	the largest value by group value
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public <K, V> Map<K, V> max(final String column) {
+		return (Map) query.aggregate("max", column, query.getReader(column), group);
+	}
+
+}
@@ -0,0 +1,253 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import roboguice.util.Ln;
+
+/**
+ * {@link DatabaseMetrics} that keeps in memory one histogram of operation times per SQL template, and logs the
+ * operations slower than a threshold.</br>
+ * 
+ * The template of a statement is its SQL with the string and number literals replaced by parameters and the
+ * lists of IN parameters collapsed, so statements built with inline values share one histogram. Operations
+ * without SQL, such as batches, are kept per operation type and table. At most a given number of histograms
+ * is kept, the least recently used one being dropped first.</br>
+ * 
+ * Operation times are the sum of the lock wait, execution and mapping times. They are counted in buckets whose
+ * bounds double from one microsecond on, so percentiles are approximated by the upper bound of their bucket.
+ * 
+ * <pre>
+ * HistogramMetrics metrics = new HistogramMetrics(100);
+ * Model.setDatabaseMetrics(metrics);
+ * ...
+ * for (HistogramMetrics.Histogram histogram : metrics.getHistograms()) {
+ * 	Ln.i(histogram);
+ * }
+ * </pre>
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class HistogramMetrics implements DatabaseMetrics {
+	private static final int BUCKETS = 32;
+	private static final int DEFAULT_MAX_HISTOGRAMS = 256;
+	private static final Pattern LITERAL = Pattern.compile("'(?:[^']|'')*'|\\b\\d+(?:\\.\\d+)?\\b");
+	private static final Pattern IN_LIST = Pattern.compile("\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)",
+			Pattern.CASE_INSENSITIVE);
+
+	private final long slowQueryThresholdNanos;
+	private final Map<String, Histogram> histograms;
+
+	/**
+	 * Creates metrics that do not log slow operations.
+	 */
+	public HistogramMetrics() {
+		this(0);
+	}
+
+	/**
+	 * Creates metrics that log the operations taking at least the given time.
+	 * 
+	 * @param slowQueryThresholdMillis	the threshold in milliseconds, or zero to log nothing
+	 */
+	public HistogramMetrics(final long slowQueryThresholdMillis) {
+		this(slowQueryThresholdMillis, DEFAULT_MAX_HISTOGRAMS);
+	}
+
+	/**
+	 * Creates metrics that log the operations taking at least the given time, keeping at most the given number
+	 * of histograms.
+	 * 
+	 * @param slowQueryThresholdMillis	the threshold in milliseconds, or zero to log nothing
+	 * @param maxHistograms	the maximum number of histograms
+	 */
+	public HistogramMetrics(final long slowQueryThresholdMillis, final int maxHistograms) {
+		this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis);
+		this.histograms = new LinkedHashMap<String, Histogram>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, Histogram> eldest) {
+				return size() > maxHistograms;
+			}
+		};
+	}
+
+	public void onOperation(final OperationType type, final String table, final String sql, final long lockWaitNanos,
+			final long executionNanos, final int rows, final long mappingNanos) {
+		final long total = lockWaitNanos + executionNanos + mappingNanos;
+
+		final String template = (sql != null ? getTemplate(sql) : null);
+		final String key = (template != null ? template : type + " " + table);
+		Histogram histogram;
+		synchronized (histograms) {
+			histogram = histograms.get(key);
+			if (histogram == null) {
+				histogram = new Histogram(type, table, template);
+				histograms.put(key, histogram);
+			}
+		}
+		histogram.record(total, lockWaitNanos, rows, mappingNanos);
+
+		if (slowQueryThresholdNanos > 0 && total >= slowQueryThresholdNanos) {
+			Ln.w("Slow " + type + " on " + table + ": " + TimeUnit.NANOSECONDS.toMillis(total) + " ms (lock wait "
+					+ TimeUnit.NANOSECONDS.toMillis(lockWaitNanos) + " ms, mapping "
+					+ TimeUnit.NANOSECONDS.toMillis(mappingNanos) + " ms, " + rows + " rows): " + sql);
+		}
+	}
+
+	/**
+	 * Returns the template of the given statement: its SQL with the literals replaced by parameters and the IN
+	 * lists of parameters collapsed into one.
+	 * 
+	 * @param sql	the statement
+	 * @return	the template
+	 */
+	static String getTemplate(final String sql) {
+		final String parameterized = LITERAL.matcher(sql).replaceAll("?");
+		return IN_LIST.matcher(parameterized).replaceAll("IN (?)");
+	}
+
+	/**
+	 * Returns the histograms kept, from the least to the most recently used.
+	 * 
+	 * @return	the histograms
+	 */
+	public List<Histogram> getHistograms() {
+		synchronized (histograms) {
+			return Collections.unmodifiableList(new ArrayList<Histogram>(histograms.values()));
+		}
+	}
+
+	/**
+	 * Forgets every recorded operation.
+	 */
+	public void reset() {
+		synchronized (histograms) {
+			histograms.clear();
+		}
+	}
+
+	/**
+	 * Operation times of one SQL template, or of the operations of one type and table without SQL.
+	 */
+	public static class Histogram {
+		private final OperationType type;
+		private final String table;
+		private final String sql;
+		private final long[] buckets = new long[BUCKETS];
+		private long count;
+		private long totalNanos;
+		private long maxNanos;
+		private long lockWaitNanos;
+		private long mappingNanos;
+		private long rows;
+
+		Histogram(final OperationType type, final String table, final String sql) {
+			this.type = type;
+			this.table = table;
+			this.sql = sql;
+		}
+
+		synchronized void record(final long nanos, final long lockWait, final int rowCount, final long mapping) {
+			final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+			final int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+			buckets[bucket]++;
+			count++;
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+			lockWaitNanos += lockWait;
+			mappingNanos += mapping;
+			rows += rowCount;
+		}
+
+		public OperationType getType() {
+			return type;
+		}
+
+		public String getTable() {
+			return table;
+		}
+
+		/**
+		 * Returns the SQL template, or null for operations without SQL.
+		 * 
+		 * @return	the template
+		 */
+		public String getSql() {
+			return sql;
+		}
+
+		public synchronized long getCount() {
+			return count;
+		}
+
+		public synchronized long getTotalNanos() {
+			return totalNanos;
+		}
+
+		public synchronized long getMaxNanos() {
+			return maxNanos;
+		}
+
+		public synchronized long getLockWaitNanos() {
+			return lockWaitNanos;
+		}
+
+		public synchronized long getMappingNanos() {
+			return mappingNanos;
+		}
+
+		public synchronized long getRows() {
+			return rows;
+		}
+
+		/**
+		 * Returns the upper bound of the bucket holding the given percentile of the operation times.
+		 * 
+		 * @param percentile	the percentile, between 0 and 100
+		 * @return	the time in nanoseconds
+		 */
+		public synchronized long getPercentileNanos(final double percentile) {
+			final long rank = (long) Math.ceil(count * percentile / 100.0);
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += buckets[i];
+				if (seen >= rank && seen > 0) {
+					return Math.min(maxNanos, TimeUnit.MICROSECONDS.toNanos(1L << i));
+				}
+			}
+			return maxNanos;
+		}
+
+		@Override
+		public synchronized String toString() {
+			return type + " " + table + " count=" + count + " total=" + TimeUnit.NANOSECONDS.toMillis(totalNanos)
+					+ "ms p50=" + TimeUnit.NANOSECONDS.toMicros(getPercentileNanos(50)) + "us p99="
+					+ TimeUnit.NANOSECONDS.toMicros(getPercentileNanos(99)) + "us max="
+					+ TimeUnit.NANOSECONDS.toMicros(maxNanos) + "us rows=" + rows + ": " + sql;
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+/**
+ * Compiled description of one index of a model class table.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class IndexMetadata {
+	private final String name;
+	private final String tableName;
+	private final String[] columns;
+	private final boolean unique;
+
+	IndexMetadata(final String name, final String tableName, final String[] columns, final boolean unique) {
+		this.tableName = tableName;
+		this.columns = columns;
+		this.unique = unique;
+
+		if (name == null || name.length() == 0) {
+			final StringBuilder generated = new StringBuilder(tableName);
+			for (String column : columns) {
+				generated.append('_').append(column);
+			}
+			this.name = generated.append("_idx").toString();
+		} else {
+			this.name = name;
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	public String[] getColumns() {
+		return columns;
+	}
+
+	public boolean isUnique() {
+		return unique;
+	}
+
+	/**
+	 * Generates the DDL index creation statement. It has no effect when the index already exists.
+	 * 
+	 * @return	the statement
+	 */
+	public String getSQLCreate() {
+		final StringBuilder sql = new StringBuilder();
+		sql.append(unique ? "CREATE UNIQUE INDEX IF NOT EXISTS " : "CREATE INDEX IF NOT EXISTS ");
+		sql.append(name);
+		sql.append(" ON ");
+		sql.append(tableName);
+		sql.append(" (");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(columns[i]);
+		}
+		sql.append(");");
+		return sql.toString();
+	}
+
+}
@@ -0,0 +1,190 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import roboguice.event.EventListener;
+
+import com.alienlabz.activerecord.event.TableChanged;
+import com.alienlabz.util.Beans;
+
+/**
+ * Query whose result is delivered again every time a table it depends on changes.</br>
+ * 
+ * It observes the {@link TableChanged} events of the {@link roboguice.event.EventManager} and re-runs the query on
+ * the {@link DatabaseExecutor} only for changes to its own table or to the tables of its included relationships.
+ * Runs are coalesced: changes notified while the query is running cause one single run once it completes.
+ * 
+ * <pre>
+ * LiveQuery&lt;Contact&gt; contacts = Model.query(Contact.class).orderBy("name").live(callback);
+ * contacts.start();
+ * ...
+ * contacts.stop();
+ * </pre>
+ * 
+ * The callback runs on a database thread, like the callbacks of every asynchronous query. A started query is
+ * referenced by the event manager until it is stopped, so stop it when its screen goes away.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ * @param <T>	the model type
+ */
+public class LiveQuery<T extends Model> {
+	private final Query<T> query;
+	private final Set<String> tables;
+	private final Callback<List<T>> callback;
+	private final EventListener<TableChanged> listener;
+	private boolean started;
+	private boolean running;
+	private boolean stale;
+
+	LiveQuery(final Query<T> query, final Collection<String> tables, final Callback<List<T>> callback) {
+		this.query = query;
+		this.tables = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		this.tables.addAll(tables);
+		this.callback = callback;
+		this.listener = new EventListener<TableChanged>() {
+
+			public void onEvent(final TableChanged event) {
+				if (LiveQuery.this.tables.contains(event.getTableName())) {
+					refresh();
+				}
+			}
+
+		};
+	}
+
+	/**
+	 * Adds tables the query depends on besides the ones it knows, such as the tables of subqueries in its
+	 * conditions.
+	 * 
+	 * @param tableNames	the table names
+	 * @return	this live query
+	 */
+	public LiveQuery<T> dependsOn(final String... tableNames) {
+		Collections.addAll(tables, tableNames);
+		return this;
+	}
+
+	/**
+	 * Returns the names of the tables whose changes make the query run again.
+	 * 
+	 * @return	the table names
+	 */
+	public Set<String> getTables() {
+		return Collections.unmodifiableSet(tables);
+	}
+
+	/**
+	 * Starts observing the tables and runs the query for the first time. It has no effect when already started.
+	 */
+	public void start() {
+		synchronized (this) {
+			if (started) {
+				return;
+			}
+			started = true;
+		}
+		Beans.getEventManager().registerObserver(TableChanged.class, listener);
+		refresh();
+	}
+
+	/**
+	 * Stops observing the tables. A run already in progress completes, but its result is not delivered.
+	 */
+	public void stop() {
+		synchronized (this) {
+			if (!started) {
+				return;
+			}
+			started = false;
+			stale = false;
+		}
+		Beans.getEventManager().unregisterObserver(TableChanged.class, listener);
+	}
+
+	public synchronized boolean isStarted() {
+		return started;
+	}
+
+	/**
+	 * Runs the query, or only marks its result as stale when a run is in progress. When the executor rejects
+	 * the run, such as when its read lane is full, the failure is delivered to the callback and the next change
+	 * runs the query again.
+	 */
+	private void refresh() {
+		synchronized (this) {
+			if (!started) {
+				return;
+			}
+			if (running) {
+				stale = true;
+				return;
+			}
+			running = true;
+		}
+		try {
+			query.listAsync(new Callback<List<T>>() {
+
+				public void onSuccess(final List<T> result) {
+					try {
+						if (isStarted()) {
+							callback.onSuccess(result);
+						}
+					} finally {
+						completed();
+					}
+				}
+
+				public void onFailure(final Throwable error) {
+					try {
+						if (isStarted()) {
+							callback.onFailure(error);
+						}
+					} finally {
+						completed();
+					}
+				}
+
+			});
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				running = false;
+				stale = false;
+			}
+			if (isStarted()) {
+				callback.onFailure(e);
+			}
+		}
+	}
+
+	private void completed() {
+		synchronized (this) {
+			running = false;
+			if (!stale) {
+				return;
+			}
+			stale = false;
+		}
+		refresh();
+	}
+
+}
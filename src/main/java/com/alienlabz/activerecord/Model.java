@@ -15,20 +15,19 @@
  */
 package com.alienlabz.activerecord;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
-import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 
-import com.alienlabz.annotation.Transient;
 import com.alienlabz.util.Beans;
-import com.alienlabz.util.Reflection;
 
 /**
  * Base class for models.</br>
@@ -38,9 +37,8 @@ import com.alienlabz.util.Reflection;
  * @since 1.0.0
  */
 abstract public class Model {
-	private static String Lock = "dblock";
-
 	public Integer _id;
+	private transient Object[] snapshot;
 
 	public Model() {
 		super();
@@ -50,123 +48,668 @@ abstract public class Model {
 		this._id = id;
 	}
 
+	private EntityMetadata getMetadata() {
+		return EntityMetadata.of(getClass());
+	}
+
 	private String getTableName() {
-		return Reflection.getSimpleClassName(this);
+		return getMetadata().getTableName();
+	}
+
+	private static ConnectionManager getConnectionManager() {
+		return Beans.getBean(ConnectionManager.class);
+	}
+
+	private static DatabaseAccess getDatabaseAccess() {
+		return Beans.getBean(DatabaseAccess.class);
+	}
+
+	private static StatementCache getStatementCache() {
+		return Beans.getBean(StatementCache.class);
+	}
+
+	/**
+	 * Registers the listener notified of every database operation, replacing the previous one. Pass null to
+	 * stop timing the operations.
+	 * 
+	 * @param metrics	the listener, or null
+	 */
+	public static void setDatabaseMetrics(final DatabaseMetrics metrics) {
+		OperationTiming.setListener(metrics);
 	}
 
-	private DBOpenHelper getHelper() {
-		return Beans.getBean(DBOpenHelper.class);
+	private static DatabaseExecutor getExecutor() {
+		return Beans.getBean(DatabaseExecutor.class);
 	}
 
 	private ColumnMapper getColumnMapper() {
 		return Beans.getBean(ColumnMapper.class);
 	}
 
+	/**
+	 * Loads the model with the given id. Classes annotated with
+	 * {@link com.alienlabz.activerecord.annotation.IdentityMap} are served from memory when the model was
+	 * already loaded or saved.
+	 * 
+	 * @param cls	the class type
+	 * @param id	the id
+	 * @return	the model, or null when there is no such row
+	 */
+	@SuppressWarnings("unchecked")
 	public static <T extends Model> T load(final Class<T> cls, final Integer id) {
-		return findFirst(cls, "_id=?", new String[] { id.toString() });
+		final EntityCache cache = EntityMetadata.of(cls).getCache();
+		long version = 0;
+		if (cache != null) {
+			final Model cached = cache.get(id);
+			if (cached != null) {
+				return (T) cached;
+			}
+			version = cache.getVersion();
+		}
+
+		final T model = findFirst(cls, "_id=?", new String[] { id.toString() });
+		if (cache != null && model != null) {
+			return (T) cache.share(model, version);
+		}
+		return model;
 	}
 
 	public void load(final Integer id) {
-		synchronized (Lock) {
-			SQLiteDatabase database = getHelper().getReadableDatabase();
-			final Cursor cursor = database.query(getTableName(),
-					Reflection.getNonStaticDeclaredFieldsNames(this.getClass()), "_id=?",
-					new String[] { id.toString() }, null, null, null);
-			if (cursor.moveToFirst()) {
-				transform(cursor);
+		final EntityMetadata metadata = getMetadata();
+		final String sql = getStatementCache().getSQL(getClass(), "load", new StatementCache.SQLFactory() {
+
+			public String create() {
+				final StringBuilder sql = new StringBuilder("SELECT _id");
+				for (String column : metadata.getColumnNames()) {
+					sql.append(", ");
+					sql.append(column);
+				}
+				sql.append(" FROM ");
+				sql.append(metadata.getTableName());
+				sql.append(" WHERE _id=?");
+				return sql.toString();
+			}
+
+		});
+
+		final OperationTiming timing = OperationTiming.start(OperationType.QUERY, getClass(), sql);
+		final boolean found = getDatabaseAccess().read(new DatabaseWork<Boolean>() {
+
+			public Boolean execute(final SQLiteDatabase database) {
+				final Cursor cursor = database.rawQuery(sql, new String[] { id.toString() });
+				try {
+					if (cursor.moveToFirst()) {
+						transform(cursor);
+						return true;
+					}
+					return false;
+				} finally {
+					cursor.close();
+				}
 			}
-			cursor.close();
-			database.close();
+
+		}, timing);
+		if (timing != null) {
+			timing.report(found ? 1 : 0);
 		}
 	}
 
+	/**
+	 * Starts a query over the table of the given class type.
+	 * 
+	 * @param cls	the class type
+	 * @return	the query
+	 */
+	public static <T extends Model> Query<T> query(final Class<T> cls) {
+		return new Query<T>(cls);
+	}
+
+	/**
+	 * Returns the first occurrence of the given class type that matches the given query. Like
+	 * {@link #where(Class, String, String...)}, the query is appended as is after WHERE, so it may end with an
+	 * ORDER BY clause.
+	 * 
+	 * @param cls	the class type
+	 * @param query	the WHERE clause, or null for every row
+	 * @param params	optional parameters
+	 * @return	the model, or null when no row matches
+	 */
 	public static <T extends Model> T findFirst(final Class<T> cls, final String query, final String... params) {
-		final List<T> list = Model.where(cls, query, params);
-		T model = null;
-		if (list.size() > 0) {
-			model = list.iterator().next();
-		}
-		return model;
+		return iterate(cls, query, params).first();
 	}
 
 	public static <T extends Model> T findLast(final Class<T> cls) {
-		final String tableName = Reflection.getSimpleClassName(cls);
-		final List<T> list = Model.where(cls, "_id=(select max(_id) from " + tableName + ")");
-		T model = null;
-		if (list != null && list.size() > 0) {
-			model = list.iterator().next();
-		}
-		return model;
+		return query(cls).orderByDescending("_id").first();
 	}
 
 	public static <T extends Model> T findFirst(final Class<T> cls) {
-		final List<T> list = Model.where(cls, null);
-		T model = null;
-		if (list.size() > 0) {
-			model = list.iterator().next();
-		}
-		return model;
+		return iterate(cls, null).first();
 	}
 
 	/**
-	 * Save the model to the database.
+	 * Save the model to the database. Loaded models only have their changed columns written, and nothing at all
+	 * when no column changed.
 	 */
 	public void save() {
-		final ColumnMapper mapper = getColumnMapper();
-		final ContentValues values = new ContentValues();
+		final StatementCache statements = getStatementCache();
+		OperationTiming timing = null;
+		if (OperationTiming.isEnabled()) {
+			timing = (_id == null ? OperationTiming.start(OperationType.INSERT, getClass(),
+					SaveBatch.getSQLInsert(getMetadata())) : OperationTiming.start(OperationType.UPDATE, getClass(),
+					SaveBatch.getSQLUpdate(getMetadata())));
+		}
+
+		write(statements, false, timing);
+	}
+
+	/**
+	 * Updates the row with the same id or, when the id is not set, with the same
+	 * {@link com.alienlabz.activerecord.annotation.NaturalKey}, or inserts the model when there is no such row,
+	 * so records received from a server can be stored without first querying whether they exist. The id of the
+	 * written row is assigned to the model. The row is updated in place: unlike INSERT OR REPLACE, no row is
+	 * ever deleted because of a conflicting UNIQUE column.
+	 * 
+	 * @throws IllegalArgumentException	when the id and the natural key of the model belong to different rows
+	 */
+	public void upsert() {
+		final StatementCache statements = getStatementCache();
+		final OperationTiming timing = (OperationTiming.isEnabled() ? OperationTiming.start(OperationType.INSERT,
+				getClass(), SaveBatch.getSQLInsertWithId(getMetadata())) : null);
+
+		write(statements, true, timing);
+	}
+
+	/**
+	 * Saves or upserts this model in one transaction. Its id and snapshot are restored when the transaction
+	 * rolls back.
+	 */
+	private void write(final StatementCache statements, final boolean upsert, final OperationTiming timing) {
+		getDatabaseAccess().write(new DatabaseWork<Void>() {
 
-		final Field[] fields = Reflection.getNonStaticDeclaredFields(getClass());
-		for (Field field : fields) {
-			if (!isMultiValued(field) && !isTransient(field)) {
-				values.put(field.getName(), mapper.getValueFromObject(field, this));
+			public Void execute(final SQLiteDatabase database) {
+				final SaveBatch batch = new SaveBatch(database, statements);
+				try {
+					database.beginTransaction();
+					try {
+						if (upsert) {
+							batch.upsert(Model.this);
+						} else {
+							batch.save(Model.this);
+						}
+						database.setTransactionSuccessful();
+					} finally {
+						database.endTransaction();
+					}
+					batch.commit();
+				} catch (RuntimeException e) {
+					batch.rollback();
+					throw e;
+				} finally {
+					batch.close();
+				}
+				return null;
 			}
+
+		}, timing);
+		if (timing != null) {
+			timing.report(1);
 		}
+	}
+
+	/**
+	 * Saves the model on the write lane of the {@link DatabaseExecutor}.
+	 * 
+	 * @return	the pending result
+	 */
+	public Future<Void> saveAsync() {
+		return saveAsync(null);
+	}
+
+	/**
+	 * Saves the model on the write lane of the {@link DatabaseExecutor}.
+	 * 
+	 * @param callback	notified of the outcome, or null
+	 * @return	the pending result
+	 */
+	public Future<Void> saveAsync(final Callback<Void> callback) {
+		return getExecutor().write(new DatabaseCall<Void>() {
+
+			public Void call() {
+				save();
+				return null;
+			}
+
+		}, callback);
+	}
+
+	/**
+	 * Saves all the given models, in one transaction or in chunks of
+	 * {@link Configuration#getBatchChunkSize()} rows. New models get their generated ids assigned. When a
+	 * transaction fails, the models it wrote get back the ids they had, so they can be saved again.
+	 * 
+	 * @param models	the models, of any model classes
+	 */
+	public static void saveAll(final Collection<? extends Model> models) {
+		saveAll(models.iterator());
+	}
+
+	/**
+	 * Saves the models returned by the given iterator, consuming it as the rows are written, in one
+	 * transaction or in chunks of {@link Configuration#getBatchChunkSize()} rows. The INSERT and UPDATE
+	 * statements are compiled once per model class and reused for every row of that class. New models get
+	 * their generated ids assigned.
+	 * 
+	 * @param models	the models, of any model classes
+	 */
+	public static void saveAll(final Iterator<? extends Model> models) {
+		writeAll(models, false);
+	}
+
+	/**
+	 * Upserts all the given models, in one transaction or in chunks of
+	 * {@link Configuration#getBatchChunkSize()} rows. See {@link #upsert()}.
+	 * 
+	 * @param models	the models, of any model classes
+	 */
+	public static void upsertAll(final Collection<? extends Model> models) {
+		upsertAll(models.iterator());
+	}
+
+	/**
+	 * Upserts the models returned by the given iterator, consuming it as the rows are written, in one
+	 * transaction or in chunks of {@link Configuration#getBatchChunkSize()} rows. The statements are compiled
+	 * once per model class and reused for every row. See {@link #upsert()}.
+	 * 
+	 * @param models	the models, of any model classes
+	 */
+	public static void upsertAll(final Iterator<? extends Model> models) {
+		writeAll(models, true);
+	}
+
+	private static void writeAll(final Iterator<? extends Model> models, final boolean upsert) {
+		final int chunkSize = Beans.getBean(Configuration.class).getBatchChunkSize();
+		final StatementCache statements = getStatementCache();
+		final OperationTiming timing = OperationTiming.start(OperationType.BATCH, (String) null, null);
 
-		final String tableName = getTableName();
-		synchronized (Lock) {
-			SQLiteDatabase database = getHelper().getWritableDatabase();
-			if (_id != null) {
-				database.update(tableName, values, "_id=?", new String[] { _id.toString() });
-			} else {
-				final long newId = database.insertOrThrow(tableName, null, values);
-				if (newId != -1) {
-					this._id = (int) newId;
+		getDatabaseAccess().write(new DatabaseWork<Void>() {
+
+			public Void execute(final SQLiteDatabase database) {
+				final SaveBatch batch = new SaveBatch(database, statements);
+				try {
+					int pending = 0;
+					database.beginTransaction();
+					try {
+						while (models.hasNext()) {
+							if (upsert) {
+								batch.upsert(models.next());
+							} else {
+								batch.save(models.next());
+							}
+							if (timing != null) {
+								timing.addRows(1);
+							}
+							if (chunkSize > 0 && ++pending == chunkSize) {
+								database.setTransactionSuccessful();
+								database.endTransaction();
+								batch.commit();
+								database.beginTransaction();
+								pending = 0;
+							}
+						}
+						database.setTransactionSuccessful();
+					} finally {
+						database.endTransaction();
+					}
+					batch.commit();
+				} catch (RuntimeException e) {
+					batch.rollback();
+					throw e;
+				} finally {
+					batch.close();
 				}
+				return null;
 			}
-			database.close();
+
+		}, timing);
+		if (timing != null) {
+			timing.report(0);
 		}
 	}
 
 	/**
-	 * Delete the model from database.
+	 * Saves all the given models on the write lane of the {@link DatabaseExecutor}. The collection is copied,
+	 * so it may be changed once this method returns.
+	 * 
+	 * @param models	the models, of any model classes
+	 * @param callback	notified of the outcome, or null
+	 * @return	the pending result
+	 */
+	public static Future<Void> saveAllAsync(final Collection<? extends Model> models, final Callback<Void> callback) {
+		final List<Model> copy = new ArrayList<Model>(models);
+
+		return getExecutor().write(new DatabaseCall<Void>() {
+
+			public Void call() {
+				saveAll(copy);
+				return null;
+			}
+
+		}, callback);
+	}
+
+	/**
+	 * Delete the model from database, along with its many-to-many links and the links of other models to it, in
+	 * one transaction.
 	 */
 	public void delete() {
-		synchronized (Lock) {
-			SQLiteDatabase database = getHelper().getReadableDatabase();
-			database.delete(getTableName(), "_id=?", new String[] { _id.toString() });
-			database.close();
+		final OperationTiming timing = (OperationTiming.isEnabled() ? OperationTiming.start(OperationType.DELETE,
+				getClass(), "DELETE FROM " + getTableName() + " WHERE _id=?") : null);
+
+		getDatabaseAccess().write(new DatabaseWork<Void>() {
+
+			public Void execute(final SQLiteDatabase database) {
+				database.beginTransaction();
+				try {
+					Relations.deleteLinks(database, getMetadata(), Model.this);
+					database.delete(getTableName(), "_id=?", new String[] { _id.toString() });
+					database.setTransactionSuccessful();
+				} finally {
+					database.endTransaction();
+				}
+				TableChanges.mark(getTableName());
+				return null;
+			}
+
+		}, timing);
+		if (timing != null) {
+			timing.report(1);
+		}
+
+		final EntityCache cache = getMetadata().getCache();
+		if (cache != null) {
+			cache.remove(_id);
 		}
 	}
 
+	/**
+	 * Deletes the model on the write lane of the {@link DatabaseExecutor}.
+	 * 
+	 * @param callback	notified of the outcome, or null
+	 * @return	the pending result
+	 */
+	public Future<Void> deleteAsync(final Callback<Void> callback) {
+		return getExecutor().write(new DatabaseCall<Void>() {
+
+			public Void call() {
+				delete();
+				return null;
+			}
+
+		}, callback);
+	}
+
+	/**
+	 * Deletes every row of the given class matching the given condition with one single statement, without
+	 * loading them. The many-to-many links of the deleted rows, and the links of other models to them, are deleted
+	 * too, and the identity map of the class is emptied.
+	 * 
+	 * @param cls	the model class
+	 * @param query	the condition, with ? placeholders, or null to delete every row
+	 * @param params	the parameters of the condition
+	 * @return	the number of deleted rows
+	 */
+	public static <T extends Model> int deleteWhere(final Class<T> cls, final String query, final String... params) {
+		final EntityMetadata metadata = EntityMetadata.of(cls);
+		final OperationTiming timing = OperationTiming.start(OperationType.DELETE, cls, "DELETE FROM "
+				+ metadata.getTableName() + (query != null ? " WHERE " + query : ""));
+
+		final int count = getDatabaseAccess().write(new DatabaseWork<Integer>() {
+
+			public Integer execute(final SQLiteDatabase database) {
+				database.beginTransaction();
+				try {
+					Relations.deleteLinks(database, metadata, query, params);
+					final int count = database.delete(metadata.getTableName(), query != null ? query : "1", params);
+					database.setTransactionSuccessful();
+					TableChanges.mark(metadata.getTableName());
+					return count;
+				} finally {
+					database.endTransaction();
+				}
+			}
+
+		}, timing);
+		if (timing != null) {
+			timing.report(count);
+		}
+
+		clearCache(metadata);
+		return count;
+	}
+
+	/**
+	 * Assigns the given values to every row of the given class matching the given condition with one single
+	 * statement, without loading them. Values are given by column name, as field values, and are bound with
+	 * the column converters. The identity map of the class is emptied, but instances already loaded are not
+	 * changed.
+	 * 
+	 * <pre>
+	 * Map&lt;String, Object&gt; values = new HashMap&lt;String, Object&gt;();
+	 * values.put("active", false);
+	 * Model.updateWhere(Contact.class, values, "lastSeen &lt; ?", limit);
+	 * </pre>
+	 * 
+	 * @param cls	the model class
+	 * @param values	the new values, by column name
+	 * @param query	the condition, with ? placeholders, or null to update every row
+	 * @param params	the parameters of the condition
+	 * @return	the number of updated rows
+	 */
+	public static <T extends Model> int updateWhere(final Class<T> cls, final Map<String, ?> values,
+			final String query, final String... params) {
+		final EntityMetadata metadata = EntityMetadata.of(cls);
+		if (values.isEmpty()) {
+			throw new IllegalArgumentException("No values to update.");
+		}
+
+		final ColumnMetadata[] columns = new ColumnMetadata[values.size()];
+		final Object[] arguments = new Object[values.size()];
+		final StringBuilder sql = new StringBuilder("UPDATE ");
+		sql.append(metadata.getTableName());
+		sql.append(" SET ");
+		int position = 0;
+		for (Map.Entry<String, ?> value : values.entrySet()) {
+			columns[position] = metadata.getColumn(value.getKey());
+			if (columns[position] == null) {
+				throw new IllegalArgumentException("Class " + cls.getName() + " has no persistent column "
+						+ value.getKey());
+			}
+			arguments[position] = value.getValue();
+			sql.append(position > 0 ? ", " : "");
+			sql.append(value.getKey());
+			sql.append(" = ?");
+			position++;
+		}
+		if (query != null) {
+			sql.append(" WHERE ");
+			sql.append(query);
+		}
+
+		final OperationTiming timing = OperationTiming.start(OperationType.UPDATE, cls, sql.toString());
+		final int count = getDatabaseAccess().write(new DatabaseWork<Integer>() {
+
+			public Integer execute(final SQLiteDatabase database) {
+				final SQLiteStatement statement = database.compileStatement(sql.toString());
+				try {
+					for (int i = 0; i < columns.length; i++) {
+						columns[i].getConverter().bind(statement, i + 1, arguments[i]);
+					}
+					if (params != null) {
+						for (int i = 0; i < params.length; i++) {
+							if (params[i] == null) {
+								statement.bindNull(columns.length + i + 1);
+							} else {
+								statement.bindString(columns.length + i + 1, params[i]);
+							}
+						}
+					}
+					statement.execute();
+					TableChanges.mark(metadata.getTableName());
+				} finally {
+					statement.close();
+				}
+				return (int) getStatementCache().simpleQueryForLong(database, cls, "changes",
+						new StatementCache.SQLFactory() {
+
+							public String create() {
+								return "SELECT changes()";
+							}
+
+						});
+			}
+
+		}, timing);
+		if (timing != null) {
+			timing.report(count);
+		}
+
+		clearCache(metadata);
+		return count;
+	}
+
+	private static void clearCache(final EntityMetadata metadata) {
+		final EntityCache cache = metadata.getCache();
+		if (cache != null) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Loads the given relationships of this model. Relationships are lazy: to-many fields stay null and
+	 * belongs-to references only carry the id until they are fetched or included in a query.
+	 * 
+	 * @param relations	the relationship fields or belongs-to reference fields
+	 */
+	public void fetch(final String... relations) {
+		Relations.include(getClass(), Collections.singletonList(this), relations);
+	}
+
+	/**
+	 * Loads the given relationships of all the given models with one query per relationship, instead of one
+	 * query per model.
+	 * 
+	 * @param cls	the class type
+	 * @param models	the models
+	 * @param relations	the relationship fields or belongs-to reference fields
+	 */
+	public static <T extends Model> void include(final Class<T> cls, final Collection<T> models,
+			final String... relations) {
+		Relations.include(cls, models, relations);
+	}
+
 	/**
 	 * Assigns the instantiated class with field values retrieved from the cursor.
 	 * 
 	 * @param cursor
 	 */
 	protected void transform(final Cursor cursor) {
-		final ColumnMapper mapper = getColumnMapper();
+		transform(cursor, CursorBinding.of(getClass(), cursor), getColumnMapper());
+	}
+
+	/**
+	 * Assigns the instantiated class with field values retrieved from the cursor, using an already resolved
+	 * binding plan.
+	 * 
+	 * @param cursor	the cursor
+	 * @param binding	the binding plan of the cursor projection
+	 * @param mapper	the column mapper
+	 */
+	void transform(final Cursor cursor, final CursorBinding binding, final ColumnMapper mapper) {
+		binding.bind(cursor, mapper, this);
+		takeSnapshot(binding.getColumns());
+	}
+
+	/**
+	 * Keeps the current column values, as they are in the database, to detect later changes.
+	 * 
+	 * @param columns	the persistent columns
+	 */
+	void takeSnapshot(final ColumnMetadata[] columns) {
+		final Object[] state = new Object[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			state[i] = columns[i].getState(this);
+		}
+		this.snapshot = state;
+	}
+
+	Object[] getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Restores a snapshot returned by {@link #getSnapshot()}, such as when the transaction that saved the model
+	 * rolled back.
+	 * 
+	 * @param snapshot	the column values, or null
+	 */
+	void restoreSnapshot(final Object[] snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * Compares the current column values with the ones last loaded or saved.
+	 * 
+	 * @param columns	the persistent columns
+	 * @return	one flag per column, true when it changed, or null when nothing was loaded nor saved yet
+	 */
+	boolean[] getChangedColumns(final ColumnMetadata[] columns) {
+		final Object[] state = snapshot;
+		if (state == null || state.length != columns.length) {
+			return null;
+		}
+		final boolean[] changed = new boolean[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			final Object value = columns[i].getState(this);
+			changed[i] = (value == null ? state[i] != null : !value.equals(state[i]));
+		}
+		return changed;
+	}
 
-		final Field[] fields = Reflection.getNonStaticDeclaredFields(this.getClass());
-		for (Field field : fields) {
-			if (!isMultiValued(field) && !isTransient(field)) {
-				mapper.setValueToObject(cursor, field, this);
+	/**
+	 * Returns true whether the model has values that were not saved yet. Models that were neither loaded nor
+	 * saved are always dirty.
+	 * 
+	 * @return	a boolean
+	 */
+	public boolean isDirty() {
+		final boolean[] changed = getChangedColumns(getMetadata().getColumns());
+		if (changed == null) {
+			return true;
+		}
+		for (boolean column : changed) {
+			if (column) {
+				return true;
 			}
 		}
+		return false;
+	}
 
-		final int posId = cursor.getColumnIndex("_id");
-		if (posId != -1) {
-			this._id = cursor.getInt(posId);
+	/**
+	 * Returns the names of the fields whose values changed since the model was loaded or saved. Every
+	 * persistent field is returned when the model was neither loaded nor saved.
+	 * 
+	 * @return	the field names
+	 */
+	public List<String> getChangedFields() {
+		final ColumnMetadata[] columns = getMetadata().getColumns();
+		final boolean[] changed = getChangedColumns(columns);
+		final List<String> names = new ArrayList<String>();
+		for (int i = 0; i < columns.length; i++) {
+			if (changed == null || changed[i]) {
+				names.add(columns[i].getName());
+			}
 		}
+		return names;
 	}
 
 	/**
@@ -189,32 +732,105 @@ abstract public class Model {
 	}
 
 	public static <T extends Model> List<T> where(final Class<T> cls, final String query, final String... params) {
+		return iterate(cls, query, params).toList();
+	}
 
-		final String tableName = Reflection.getSimpleClassName(cls);
-		final List<T> result = new ArrayList<T>();
+	/**
+	 * Runs {@link #where(Class, String, String...)} on the read lane of the {@link DatabaseExecutor}. Cancelling
+	 * the result stops reading the rows and closes the cursor.
+	 * 
+	 * @param cls	the class type
+	 * @param query	the WHERE clause, or null for every row
+	 * @param params	optional parameters
+	 * @return	the pending result
+	 */
+	public static <T extends Model> Future<List<T>> whereAsync(final Class<T> cls, final String query,
+			final String... params) {
+		return whereAsync(cls, null, query, params);
+	}
 
-		final StringBuffer sql = new StringBuffer();
-		sql.append("SELECT * FROM ");
-		sql.append(tableName);
-		if (query != null) {
-			sql.append(" WHERE ");
-			sql.append(query);
-		}
+	/**
+	 * Runs {@link #where(Class, String, String...)} on the read lane of the {@link DatabaseExecutor}, notifying
+	 * the given callback. Cancelling the result stops reading the rows and closes the cursor.
+	 * 
+	 * @param cls	the class type
+	 * @param callback	notified of the outcome
+	 * @param query	the WHERE clause, or null for every row
+	 * @param params	optional parameters
+	 * @return	the pending result
+	 */
+	public static <T extends Model> Future<List<T>> whereAsync(final Class<T> cls, final Callback<List<T>> callback,
+			final String query, final String... params) {
+		return getExecutor().read(new DatabaseCall<List<T>>() {
 
-		synchronized (Lock) {
-			final DBOpenHelper helper = Beans.getBean(DBOpenHelper.class);
-			SQLiteDatabase database = helper.getReadableDatabase();
-			final Cursor cursor = database.rawQuery(sql.toString(), params);
-			while (cursor.moveToNext()) {
-				T model = Reflection.instantiate(cls);
-				model.transform(cursor);
-				result.add(model);
+			public List<T> call() {
+				return track(iterate(cls, query, params)).toList();
+			}
+
+		}, callback);
+	}
+
+	/**
+	 * Returns the models of the given class whose
+	 * {@link com.alienlabz.activerecord.annotation.FullTextSearchable} fields match the given full-text query,
+	 * the ones with the most matches first. The query uses the SQLite FTS syntax, such as "apple pie",
+	 * "appl*" or "name:apple".
+	 * 
+	 * @param cls	the class type
+	 * @param match	the full-text query
+	 * @return	the matching models
+	 */
+	public static <T extends Model> List<T> search(final Class<T> cls, final String match) {
+		final String sql = getStatementCache().getSQL(cls, "search", new StatementCache.SQLFactory() {
+
+			public String create() {
+				return FullTextSearch.getSQLSearch(EntityMetadata.of(cls));
 			}
-			cursor.close();
-			database.close();
-		}
 
-		return result;
+		});
+		return iterateSQL(cls, sql, match).toList();
+	}
+
+	/**
+	 * Returns all occurrencies of the given class type as a lazy result.
+	 * 
+	 * @param cls	the class type
+	 * @return	a lazy result, to be closed by the caller
+	 */
+	public static <T extends Model> ModelCursor<T> iterateAll(final Class<T> cls) {
+		return iterate(cls, null);
+	}
+
+	/**
+	 * Returns the occurrencies of the given class type that match the given query as a lazy result. Rows are
+	 * mapped only as the result is iterated.
+	 * 
+	 * @param cls	the class type
+	 * @param query	the WHERE clause, or null for every row
+	 * @param params	optional parameters
+	 * @return	a lazy result, to be closed by the caller
+	 */
+	public static <T extends Model> ModelCursor<T> iterate(final Class<T> cls, final String query,
+			final String... params) {
+
+		final StatementCache.SQLFactory factory = new StatementCache.SQLFactory() {
+
+			public String create() {
+				final StringBuilder sql = new StringBuilder();
+				sql.append("SELECT * FROM ");
+				sql.append(EntityMetadata.of(cls).getTableName());
+				if (query != null) {
+					sql.append(" WHERE ");
+					sql.append(query);
+				}
+				return sql.toString();
+			}
+
+		};
+		final String sql = (StatementCache.isTemplate(query, params) ? getStatementCache().getSQL(cls,
+				"where|" + query, factory) : factory.create());
+
+		return iterateSQL(cls, sql, params);
 	}
 
 	/**
@@ -229,28 +845,38 @@ abstract public class Model {
 
 	public static <T extends Model> int count(final Class<T> cls, final String query, final String... params) {
 
-		final String tableName = Reflection.getSimpleClassName(cls);
-		int result = 0;
+		final StatementCache.SQLFactory factory = new StatementCache.SQLFactory() {
 
-		final StringBuffer sql = new StringBuffer();
-		sql.append("SELECT count(1) FROM ");
-		sql.append(tableName);
-		if (query != null) {
-			sql.append(" WHERE ");
-			sql.append(query);
-		}
+			public String create() {
+				final StringBuilder sql = new StringBuilder();
+				sql.append("SELECT count(1) FROM ");
+				sql.append(EntityMetadata.of(cls).getTableName());
+				if (query != null) {
+					sql.append(" WHERE ");
+					sql.append(query);
+				}
+				return sql.toString();
+			}
+
+		};
+
+		final boolean cached = StatementCache.isTemplate(query, params);
+		final OperationTiming timing = (OperationTiming.isEnabled() ? OperationTiming.start(OperationType.COUNT, cls,
+				cached ? getStatementCache().getSQL(cls, "count|" + query, factory) : factory.create()) : null);
+		final int count = getDatabaseAccess().read(new DatabaseWork<Integer>() {
 
-		synchronized (Lock) {
-			final DBOpenHelper helper = Beans.getBean(DBOpenHelper.class);
-			SQLiteDatabase database = helper.getReadableDatabase();
-			final Cursor cursor = database.rawQuery(sql.toString(), params);
-			if (cursor.moveToNext()) {
-				result = cursor.getInt(0);
+			public Integer execute(final SQLiteDatabase database) {
+				if (!cached) {
+					return (int) StatementCache.simpleQueryForLong(database, factory.create(), params);
+				}
+				return (int) getStatementCache().simpleQueryForLong(database, cls, "count|" + query, factory, params);
 			}
-			cursor.close();
-			database.close();
+
+		}, timing);
+		if (timing != null) {
+			timing.report(1);
 		}
-		return result;
+		return count;
 	}
 
 	/**
@@ -260,23 +886,27 @@ abstract public class Model {
 	 * @return	the statement
 	 */
 	public static String getSQLCreateTable(final Class<?> cls) {
+		final EntityMetadata metadata = EntityMetadata.of(cls);
+		return getSQLCreateTable(metadata, metadata.getTableName());
+	}
 
-		final String tableName = Reflection.getSimpleClassName(cls);
+	/**
+	 * Generates the DDL table creation statement of the given class metadata, with the given table name.
+	 * 
+	 * @param metadata	the class metadata
+	 * @param tableName	the table name
+	 * @return	the statement
+	 */
+	static String getSQLCreateTable(final EntityMetadata metadata, final String tableName) {
 		final StringBuilder sql = new StringBuilder();
 
 		sql.append("CREATE TABLE ");
 		sql.append(tableName);
 		sql.append(" (_id INTEGER PRIMARY KEY");
 
-		final Field[] fields = Reflection.getNonStaticDeclaredFields(cls);
-		for (Field field : fields) {
-			if (isMultiValued(field) || isTransient(field)) {
-				continue;
-			}
+		for (ColumnMetadata column : metadata.getColumns()) {
 			sql.append(", ");
-			sql.append(field.getName());
-			sql.append(" ");
-			sql.append(getType(field));
+			sql.append(column.getSQLDefinition());
 		}
 		sql.append(");");
 
@@ -284,124 +914,115 @@ abstract public class Model {
 	}
 
 	/**
-	 * Returns the SQL data type associated with the given Java field type.
+	 * Generates the DDL index creation statements corresponding to the indexes declared in the given class
+	 * type. The statements have no effect on indexes that already exist.
 	 * 
-	 * @param field
-	 * @return	a String
+	 * @param cls	the class
+	 * @return	the statements
 	 */
-	private static String getType(final Field field) {
-		final String cls = field.getType().getSimpleName().toLowerCase();
-
-		String type = null;
-		if (cls.equals("string") || cls.equals("char") || cls.equals("character")) {
-			type = "TEXT";
-		} else if (cls.equals("integer") || cls.equals("int") || cls.equals("long") || cls.equals("short")
-				|| cls.equals("byte") || cls.equals("boolean")) {
-			type = "INTEGER";
-		} else if (cls.equals("double") || cls.equals("float")) {
-			type = "REAL";
-		} else if (cls.equals("date")) {
-			type = "DATE";
-		} else if (field.getType().isEnum()) {
-			type = "INTEGER";
-		} else {
-			type = "TEXT";
+	public static List<String> getSQLCreateIndexes(final Class<?> cls) {
+		final List<String> statements = new ArrayList<String>();
+		for (IndexMetadata index : EntityMetadata.of(cls).getIndexes()) {
+			statements.add(index.getSQLCreate());
 		}
-
-		return type;
+		return statements;
 	}
 
 	/**
-	 * Returns true whether the given field type is a core collection interface.
+	 * Generates the DDL creation statements of the join tables of the many-to-many relationships declared in
+	 * the given class type. The statements have no effect on tables that already exist.
 	 * 
-	 * @param field	the field
-	 * @return	a boolean
+	 * @param cls	the class
+	 * @return	the statements
 	 */
-	private static boolean isCollection(final Field field) {
-		if (Collection.class.isAssignableFrom(field.getType()))
-			return true;
-		if (Map.class.isAssignableFrom(field.getType()))
-			return true;
-		return false;
+	public static List<String> getSQLCreateJoinTables(final Class<?> cls) {
+		final List<String> statements = new ArrayList<String>();
+		for (RelationMetadata relation : EntityMetadata.of(cls).getRelations().values()) {
+			if (relation.isManyToMany()) {
+				statements.add(relation.getSQLCreateJoinTable());
+			}
+		}
+		return statements;
 	}
 
 	/**
-	 * Returns true whether the given field type is an array.
+	 * Issues a given native SQL query, returning a list of a given class type instances. 
 	 * 
-	 * @param field	the field
-	 * @return	a boolean
+	 * @param cls	the class type
+	 * @param sql	the complete SQL statement
+	 * @param params	optional parameters
+	 * @return	a list of class type
 	 */
-	private static boolean isArray(final Field field) {
-		return field.getType().isArray();
+	public static <T extends Model> List<T> createSQLQuery(final Class<T> cls, final String sql, final String... params) {
+		return iterateSQL(cls, sql, params).toList();
 	}
 
 	/**
-	 * Returns true whether the given field type is multi-valued.
-	 * 
-	 * @param field	the field
-	 * @return	a boolean
-	 */
-	private static boolean isMultiValued(final Field field) {
-		return isCollection(field) || isArray(field);
-	}
-
-	/**
-	 * Issues a given native SQL query, returning a list of a given class type instances. 
+	 * Issues a given native SQL query, returning a lazy result of a given class type instances. The query is
+	 * executed right away, but rows are mapped only as the result is iterated.
 	 * 
 	 * @param cls	the class type
 	 * @param sql	the complete SQL statement
 	 * @param params	optional parameters
-	 * @return	a list of class type
+	 * @return	a lazy result, to be closed by the caller
 	 */
-	public static <T extends Model> List<T> createSQLQuery(final Class<T> cls, final String sql, final String... params) {
+	public static <T extends Model> ModelCursor<T> iterateSQL(final Class<T> cls, final String sql,
+			final String... params) {
+		final ConnectionManager connections = getConnectionManager();
+		final OperationTiming timing = OperationTiming.start(OperationType.QUERY, cls, sql);
 
-		final List<T> result = new ArrayList<T>();
+		return getDatabaseAccess().read(new DatabaseWork<ModelCursor<T>>() {
 
-		synchronized (Lock) {
-			final DBOpenHelper helper = Beans.getBean(DBOpenHelper.class);
-			SQLiteDatabase database = helper.getReadableDatabase();
-
-			final Cursor cursor = database.rawQuery(sql, params);
-			while (cursor.moveToNext()) {
-				T model = Reflection.instantiate(cls);
-				model.transform(cursor);
-				result.add(model);
+			public ModelCursor<T> execute(final SQLiteDatabase database) {
+				final Cursor cursor = database.rawQuery(sql, params);
+				connections.acquire();
+				try {
+					return new ModelCursor<T>(cls, cursor, connections, timing);
+				} catch (RuntimeException e) {
+					cursor.close();
+					connections.release();
+					throw e;
+				}
 			}
 
-			cursor.close();
-			database.close();
-		}
-		return result;
+		}, timing);
+	}
+
+	/**
+	 * Closes the database connection kept open by the model operations and lets the writer thread end. Call it
+	 * on application shutdown; the next operation opens the database again.
+	 */
+	public static void closeDatabase() {
+		getDatabaseAccess().stopWriter();
+		getConnectionManager().close();
 	}
 
 	/**
-	 * Executes the given native SQL statement.
+	 * Executes the given native SQL statement. The identity maps of the tables it mentions are emptied, and
+	 * their observers notified.
 	 * 
 	 * @param sql	the SQL statement
 	 * @param params	optional arguments
 	 */
 	public static void executeSQL(final String sql, final Object... params) {
-		synchronized (Lock) {
-			final DBOpenHelper helper = Beans.getBean(DBOpenHelper.class);
-			SQLiteDatabase database = helper.getReadableDatabase();
-
-			if (params != null && params.length > 0) {
-				database.execSQL(sql, params);
-			} else {
-				database.execSQL(sql);
+		final OperationTiming timing = OperationTiming.start(OperationType.EXECUTE, (String) null, sql);
+
+		getDatabaseAccess().write(new DatabaseWork<Void>() {
+
+			public Void execute(final SQLiteDatabase database) {
+				if (params != null && params.length > 0) {
+					database.execSQL(sql, params);
+				} else {
+					database.execSQL(sql);
+				}
+				TableChanges.markStatement(sql);
+				return null;
 			}
 
-			database.close();
+		}, timing);
+		if (timing != null) {
+			timing.report(0);
 		}
-	}
-
-	/**
-	 * Returns true whether the given field is signed as transient.
-	 * 
-	 * @param field	the field
-	 * @return	a boolean
-	 */
-	private static boolean isTransient(final Field field) {
-		return Modifier.isTransient(field.getModifiers()) || field.isAnnotationPresent(Transient.class);
+		EntityCache.invalidate(sql);
 	}
 }
@@ -0,0 +1,244 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import android.database.Cursor;
+
+import com.alienlabz.util.Beans;
+import com.alienlabz.util.Reflection;
+
+/**
+ * Lazy result of a query: rows are mapped to models only as they are iterated.</br>
+ * 
+ * The underlying cursor and the database connection are held until the result is closed, which happens
+ * automatically once the iteration reaches the last row. Close it explicitly when the iteration may stop
+ * earlier:
+ * 
+ * <pre>
+ * ModelCursor&lt;Contact&gt; contacts = Model.iterate(Contact.class, "age &gt; ?", "18");
+ * try {
+ * 	for (Contact contact : contacts) {
+ * 		...
+ * 	}
+ * } finally {
+ * 	contacts.close();
+ * }
+ * </pre>
+ * 
+ * A result can be iterated only once.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ * @param <T>	the model type
+ */
+public class ModelCursor<T extends Model> implements Iterable<T>, Closeable {
+	private final Class<T> cls;
+	private final Cursor cursor;
+	private final ConnectionManager connections;
+	private final CursorBinding binding;
+	private final ColumnMapper mapper;
+	private final boolean customTransform;
+	private final RowMapper<T> rowMapper;
+	private final OperationTiming timing;
+	private boolean reuseInstance;
+	private boolean iterated;
+	private boolean closed;
+	private volatile boolean cancelled;
+	private T shared;
+
+	/**
+	 * Wraps the given cursor. The caller must have acquired a connection on behalf of this result; it is
+	 * released when the result is closed.
+	 * 
+	 * @param cls	the model class
+	 * @param cursor	the cursor
+	 * @param connections	the connection manager
+	 * @param timing	the timing of the query, reported when the result is closed, or null
+	 */
+	@SuppressWarnings("unchecked")
+	ModelCursor(final Class<T> cls, final Cursor cursor, final ConnectionManager connections,
+			final OperationTiming timing) {
+		this.cls = cls;
+		this.cursor = cursor;
+		this.connections = connections;
+		this.binding = CursorBinding.of(cls, cursor);
+		this.mapper = Beans.getBean(ColumnMapper.class);
+		final EntityMetadata metadata = EntityMetadata.of(cls);
+		this.rowMapper = (RowMapper<T>) metadata.getRowMapper();
+		this.customTransform = metadata.hasCustomTransform();
+		this.timing = timing;
+	}
+
+	/**
+	 * Maps every row into one single model instance instead of creating a new one per row. Use it for read-only
+	 * scans that do not keep references to the returned models.
+	 * 
+	 * @return	this result
+	 */
+	public ModelCursor<T> reuseInstance() {
+		this.reuseInstance = true;
+		return this;
+	}
+
+	/**
+	 * Returns the number of rows in this result.
+	 * 
+	 * @return	an int
+	 */
+	public int getCount() {
+		return cursor.getCount();
+	}
+
+	public Iterator<T> iterator() {
+		if (iterated) {
+			throw new IllegalStateException("A ModelCursor can be iterated only once.");
+		}
+		iterated = true;
+
+		return new Iterator<T>() {
+			private boolean fetched;
+			private boolean available;
+
+			public boolean hasNext() {
+				if (!fetched) {
+					available = !closed && !cancelled && moveToNext();
+					fetched = true;
+					if (!available) {
+						close();
+					}
+				}
+				return available;
+			}
+
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				fetched = false;
+				return map();
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Maps all the remaining rows into a list and closes this result.
+	 * 
+	 * @return	a list of models
+	 */
+	public List<T> toList() {
+		final List<T> result = new ArrayList<T>();
+		try {
+			for (T model : this) {
+				result.add(model);
+			}
+		} finally {
+			close();
+		}
+		return result;
+	}
+
+	/**
+	 * Maps the first row, if any, and closes this result.
+	 * 
+	 * @return	the model, or null when there are no rows
+	 */
+	public T first() {
+		try {
+			final Iterator<T> iterator = iterator();
+			return iterator.hasNext() ? iterator.next() : null;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Stops the iteration of this result from any thread. The thread that iterates it closes the result on its
+	 * next step, as if there were no more rows.
+	 */
+	public void cancel() {
+		this.cancelled = true;
+	}
+
+	/**
+	 * Closes the underlying cursor and releases the database connection. Closing twice has no effect.
+	 */
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			cursor.close();
+		} finally {
+			connections.release();
+			if (timing != null) {
+				timing.report(0);
+			}
+		}
+	}
+
+	private boolean moveToNext() {
+		if (timing == null) {
+			return cursor.moveToNext();
+		}
+		final long start = System.nanoTime();
+		try {
+			return cursor.moveToNext();
+		} finally {
+			timing.addExecution(System.nanoTime() - start);
+		}
+	}
+
+	private T map() {
+		if (timing == null) {
+			return mapRow();
+		}
+		final long start = System.nanoTime();
+		try {
+			return mapRow();
+		} finally {
+			timing.addMapping(System.nanoTime() - start);
+			timing.addRows(1);
+		}
+	}
+
+	private T mapRow() {
+		T model = shared;
+		if (model == null) {
+			model = (rowMapper != null ? rowMapper.newInstance() : Reflection.instantiate(cls));
+			if (reuseInstance) {
+				shared = model;
+			}
+		}
+		if (customTransform) {
+			model.transform(cursor);
+		} else {
+			model.transform(cursor, binding, mapper);
+		}
+		return model;
+	}
+
+}
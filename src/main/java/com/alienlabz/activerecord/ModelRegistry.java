@@ -0,0 +1,80 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+/**
+ * Index of the model classes of an application, with their DDL statements, generated at compile time by the
+ * annotation processor.</br>
+ * 
+ * {@link DBOpenHelper} reads it to create and upgrade the tables without scanning the dex file for Model
+ * subclasses. The registries of every module listed by {@link Configuration#getModelRegistry()} are merged;
+ * when none is found, it falls back to scanning.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public interface ModelRegistry {
+
+	/**
+	 * Name of the class generated by the annotation processor, unless another one is given with its
+	 * "activerecord.registry" option.
+	 */
+	String DEFAULT_NAME = "com.alienlabz.activerecord.generated.GeneratedModelRegistry";
+
+	/**
+	 * Returns every model class of the application.
+	 * 
+	 * @return	the classes
+	 */
+	Class<?>[] getModelClasses();
+
+	/**
+	 * Returns the DDL table creation statement of the given class, or null when the class is not in this
+	 * registry.
+	 * 
+	 * @param cls	the model class
+	 * @return	the statement
+	 */
+	String getSQLCreateTable(Class<?> cls);
+
+	/**
+	 * Returns the DDL index creation statements of the given class, or null when the class is not in this
+	 * registry.
+	 * 
+	 * @param cls	the model class
+	 * @return	the statements
+	 */
+	String[] getSQLCreateIndexes(Class<?> cls);
+
+	/**
+	 * Returns the DDL creation statements of the join tables of the given class, or null when the class is not
+	 * in this registry.
+	 * 
+	 * @param cls	the model class
+	 * @return	the statements
+	 */
+	String[] getSQLCreateJoinTables(Class<?> cls);
+
+	/**
+	 * Returns the names of the full-text searchable columns of the given class, empty when it has none, or null
+	 * when the class is not in this registry.
+	 * 
+	 * @param cls	the model class
+	 * @return	the column names
+	 */
+	String[] getSearchableColumns(Class<?> cls);
+
+}
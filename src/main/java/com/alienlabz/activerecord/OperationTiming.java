@@ -0,0 +1,122 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import roboguice.util.Ln;
+
+/**
+ * Measures one database operation on behalf of the registered {@link DatabaseMetrics}. Operations are only
+ * timed when a listener is registered: {@link #start(OperationType, Class, String)} returns null otherwise, and
+ * callers skip every measurement.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+final class OperationTiming {
+	private static volatile DatabaseMetrics listener;
+
+	private final DatabaseMetrics metrics;
+	private final OperationType type;
+	private final Class<?> cls;
+	private final String table;
+	private final String sql;
+	private long lockWait;
+	private long execution;
+	private long mapping;
+	private int rows;
+
+	private OperationTiming(final DatabaseMetrics metrics, final OperationType type, final Class<?> cls,
+			final String table, final String sql) {
+		this.metrics = metrics;
+		this.type = type;
+		this.cls = cls;
+		this.table = table;
+		this.sql = sql;
+	}
+
+	static void setListener(final DatabaseMetrics metrics) {
+		listener = metrics;
+	}
+
+	/**
+	 * Returns true whether a listener is registered, so that callers can skip building the description of an
+	 * operation that will not be reported.
+	 * 
+	 * @return	a boolean
+	 */
+	static boolean isEnabled() {
+		return listener != null;
+	}
+
+	/**
+	 * Starts timing an operation on the table of the given model class.
+	 * 
+	 * @param type	the kind of operation
+	 * @param cls	the model class, or null
+	 * @param sql	the SQL template
+	 * @return	the timing, or null when no listener is registered
+	 */
+	static OperationTiming start(final OperationType type, final Class<?> cls, final String sql) {
+		final DatabaseMetrics metrics = listener;
+		return metrics == null ? null : new OperationTiming(metrics, type, cls, null, sql);
+	}
+
+	/**
+	 * Starts timing an operation on the given table.
+	 * 
+	 * @param type	the kind of operation
+	 * @param table	the table name
+	 * @param sql	the SQL template
+	 * @return	the timing, or null when no listener is registered
+	 */
+	static OperationTiming start(final OperationType type, final String table, final String sql) {
+		final DatabaseMetrics metrics = listener;
+		return metrics == null ? null : new OperationTiming(metrics, type, null, table, sql);
+	}
+
+	void addLockWait(final long nanos) {
+		lockWait += nanos;
+	}
+
+	void addExecution(final long nanos) {
+		execution += nanos;
+	}
+
+	void addMapping(final long nanos) {
+		mapping += nanos;
+	}
+
+	void addRows(final int count) {
+		rows += count;
+	}
+
+	/**
+	 * Reports the operation to the listener that was registered when it started. Listener failures are logged
+	 * and never reach the caller.
+	 * 
+	 * @param count	rows read or written, added to the ones already counted
+	 */
+	void report(final int count) {
+		rows += count;
+		try {
+			metrics.onOperation(type, cls != null ? EntityMetadata.of(cls).getTableName() : table, sql, lockWait,
+					execution, rows, mapping);
+		} catch (RuntimeException e) {
+			Ln.w(e, "Database metrics listener failed.");
+		}
+	}
+
+}
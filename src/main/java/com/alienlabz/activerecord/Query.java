@@ -0,0 +1,631 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.alienlabz.util.Beans;
+
+/**
+ * Fluent query over the table of a model class.</br>
+ * 
+ * Conditions, ordering, limits and projections are all pushed into the SQL statement, so only the requested
+ * rows and columns are read:
+ * 
+ * <pre>
+ * List&lt;Contact&gt; contacts = Model.query(Contact.class).where("age &gt; ?", "18").orderBy("name").limit(20).list();
+ * </pre>
+ * 
+ * Endless lists over large tables should page with {@link #after(Model)} instead of {@link #offset(int)}: it
+ * seeks directly to the rows following the last model of the previous page, while an offset makes the database
+ * walk over every skipped row.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ * @param <T>	the model type
+ */
+public class Query<T extends Model> {
+	private static final String ID = "_id";
+
+	private final Class<T> cls;
+	private final EntityMetadata metadata;
+	private final List<String> conditions = new ArrayList<String>();
+	private final List<String> params = new ArrayList<String>();
+	private final List<String> orderColumns = new ArrayList<String>();
+	private final List<Boolean> orderAscending = new ArrayList<Boolean>();
+	private String[] projection;
+	private int limit = -1;
+	private int offset = -1;
+	private T seek;
+	private String[] includes = new String[0];
+
+	Query(final Class<T> cls) {
+		this.cls = cls;
+		this.metadata = EntityMetadata.of(cls);
+	}
+
+	/**
+	 * Adds a condition to the WHERE clause. Several conditions are combined with AND, each one within
+	 * parentheses, so a condition must be an expression only: ordering goes through {@link #orderBy(String)},
+	 * unlike the raw clauses given to {@link Model#where(Class, String, String...)}.
+	 * 
+	 * @param condition	the condition, with ? placeholders
+	 * @param params	the parameters of the condition
+	 * @return	this query
+	 */
+	public Query<T> where(final String condition, final String... params) {
+		if (condition != null) {
+			conditions.add(condition);
+			if (params != null) {
+				for (String param : params) {
+					this.params.add(param);
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Orders the result by the given column, in ascending order.
+	 * 
+	 * @param column	the column name
+	 * @return	this query
+	 */
+	public Query<T> orderBy(final String column) {
+		return orderBy(column, true);
+	}
+
+	/**
+	 * Orders the result by the given column, in descending order.
+	 * 
+	 * @param column	the column name
+	 * @return	this query
+	 */
+	public Query<T> orderByDescending(final String column) {
+		return orderBy(column, false);
+	}
+
+	private Query<T> orderBy(final String column, final boolean ascending) {
+		checkColumn(column);
+		orderColumns.add(column);
+		orderAscending.add(ascending);
+		return this;
+	}
+
+	/**
+	 * Limits the number of returned rows.
+	 * 
+	 * @param limit	the maximum number of rows
+	 * @return	this query
+	 */
+	public Query<T> limit(final int limit) {
+		this.limit = limit;
+		return this;
+	}
+
+	/**
+	 * Skips the given number of rows. Prefer {@link #after(Model)} to page over large tables.
+	 * 
+	 * @param offset	the number of rows to skip
+	 * @return	this query
+	 */
+	public Query<T> offset(final int offset) {
+		this.offset = offset;
+		return this;
+	}
+
+	/**
+	 * Reads only the given columns. The other fields of the returned models are left with their default
+	 * values, and the id is always read.
+	 * 
+	 * @param columns	the column names
+	 * @return	this query
+	 */
+	public Query<T> select(final String... columns) {
+		for (String column : columns) {
+			checkColumn(column);
+		}
+		this.projection = columns;
+		return this;
+	}
+
+	/**
+	 * Restricts the result to the rows that follow the given model in the query ordering (keyset pagination).
+	 * The id is used as the final tie-breaker, so the ordering is total and no row is skipped or repeated
+	 * between pages. The ordering columns must not contain null values.
+	 * 
+	 * @param last	the last model of the previous page, or null for the first page
+	 * @return	this query
+	 */
+	public Query<T> after(final T last) {
+		this.seek = last;
+		return this;
+	}
+
+	/**
+	 * Loads the given relationships of the returned models in batch: one query per relationship for the whole
+	 * result, instead of one per model. Applies to {@link #list()}, {@link #first()} and their asynchronous
+	 * variants; lazy results are never included.
+	 * 
+	 * @param relations	the relationship fields or belongs-to reference fields
+	 * @return	this query
+	 */
+	public Query<T> include(final String... relations) {
+		for (String relation : relations) {
+			Relations.check(cls, relation);
+		}
+		this.includes = relations;
+		return this;
+	}
+
+	/**
+	 * Executes the query and returns a lazy result.
+	 * 
+	 * @return	a lazy result, to be closed by the caller
+	 */
+	public ModelCursor<T> iterate() {
+		final List<String> arguments = new ArrayList<String>(params);
+		final String sql = toSQL(arguments, limit);
+		return Model.iterateSQL(cls, sql, toArray(arguments));
+	}
+
+	/**
+	 * Executes the query and returns all the rows.
+	 * 
+	 * @return	a list of models
+	 */
+	public List<T> list() {
+		return include(iterate().toList(), includes);
+	}
+
+	/**
+	 * Executes the query reading one single row.
+	 * 
+	 * @return	the first model, or null when there are no rows
+	 */
+	public T first() {
+		final List<String> arguments = new ArrayList<String>(params);
+		final String sql = toSQL(arguments, 1);
+		return include(Model.iterateSQL(cls, sql, toArray(arguments)).first(), includes);
+	}
+
+	/**
+	 * Executes the query on the {@link DatabaseExecutor} and returns a lazy result. The query is captured as
+	 * it is now; later changes to this builder do not affect it.
+	 * 
+	 * @param callback	notified of the outcome, or null
+	 * @return	the pending result, to be closed by the caller
+	 */
+	public Future<ModelCursor<T>> iterateAsync(final Callback<ModelCursor<T>> callback) {
+		final List<String> arguments = new ArrayList<String>(params);
+		final String sql = toSQL(arguments, limit);
+		final String[] values = toArray(arguments);
+
+		return getExecutor().read(new DatabaseCall<ModelCursor<T>>() {
+
+			public ModelCursor<T> call() {
+				return Model.iterateSQL(cls, sql, values);
+			}
+
+		}, callback);
+	}
+
+	/**
+	 * Executes the query on the {@link DatabaseExecutor} and returns all the rows. Cancelling the result stops
+	 * reading the rows and closes the cursor. The query is captured as it is now; later changes to this builder
+	 * do not affect it.
+	 * 
+	 * @param callback	notified of the outcome, or null
+	 * @return	the pending result
+	 */
+	public Future<List<T>> listAsync(final Callback<List<T>> callback) {
+		final List<String> arguments = new ArrayList<String>(params);
+		final String sql = toSQL(arguments, limit);
+		final String[] values = toArray(arguments);
+		final String[] relations = includes;
+
+		return getExecutor().read(new DatabaseCall<List<T>>() {
+
+			public List<T> call() {
+				return include(track(Model.iterateSQL(cls, sql, values)).toList(), relations);
+			}
+
+		}, callback);
+	}
+
+	/**
+	 * Executes the query on the {@link DatabaseExecutor}, reading one single row.
+	 * 
+	 * @param callback	notified of the outcome, or null
+	 * @return	the pending result
+	 */
+	public Future<T> firstAsync(final Callback<T> callback) {
+		final List<String> arguments = new ArrayList<String>(params);
+		final String sql = toSQL(arguments, 1);
+		final String[] values = toArray(arguments);
+		final String[] relations = includes;
+
+		return getExecutor().read(new DatabaseCall<T>() {
+
+			public T call() {
+				return include(track(Model.iterateSQL(cls, sql, values)).first(), relations);
+			}
+
+		}, callback);
+	}
+
+	/**
+	 * Returns a live version of this query, delivering all the rows to the given callback every time its table,
+	 * or the table of one of its included relationships, changes. The query must not be changed afterwards.
+	 * 
+	 * @param callback	notified of every result
+	 * @return	the live query, to be started
+	 */
+	public LiveQuery<T> live(final Callback<List<T>> callback) {
+		final Set<String> tables = new LinkedHashSet<String>();
+		tables.add(metadata.getTableName());
+		for (String include : includes) {
+			final RelationMetadata relation = metadata.getRelations().get(include);
+			if (relation != null) {
+				tables.add(EntityMetadata.of(relation.getTargetType()).getTableName());
+				if (relation.isManyToMany()) {
+					tables.add(relation.getJoinTable());
+				}
+			} else {
+				tables.add(EntityMetadata.of(metadata.getColumn(include).getReferencedType()).getTableName());
+			}
+		}
+		return new LiveQuery<T>(this, tables, callback);
+	}
+
+	/**
+	 * Counts the rows matching the conditions of this query. Ordering, limits and projections are ignored.
+	 * 
+	 * @return	the number of rows
+	 */
+	public int count() {
+		final List<String> arguments = new ArrayList<String>(params);
+		final String sql = toCountSQL(arguments);
+		return count(sql, toArray(arguments));
+	}
+
+	private int count(final String sql, final String[] values) {
+		final StatementCache statements = Beans.getBean(StatementCache.class);
+
+		final OperationTiming timing = OperationTiming.start(OperationType.COUNT, cls, sql);
+
+		final int count = Beans.getBean(DatabaseAccess.class).read(new DatabaseWork<Integer>() {
+
+			public Integer execute(final SQLiteDatabase database) {
+				if (!conditions.isEmpty() && values.length == 0) {
+					return (int) StatementCache.simpleQueryForLong(database, sql, values);
+				}
+				return (int) statements.simpleQueryForLong(database, cls, "query|" + sql,
+						new StatementCache.SQLFactory() {
+
+							public String create() {
+								return sql;
+							}
+
+						}, values);
+			}
+
+		}, timing);
+		if (timing != null) {
+			timing.report(1);
+		}
+		return count;
+	}
+
+	/**
+	 * Sums the given column over the rows matching the conditions of this query. The sum is computed by SQLite,
+	 * without reading any row. Ordering, limits and projections are ignored.
+	 * 
+	 * @param column	the column name
+	 * @return	the sum, or zero when no row matches
+	 */
+	public double sum(final String column) {
+		checkColumn(column);
+		return (Double) aggregate("total", column, TypeConverters.DOUBLE, null).get(null);
+	}
+
+	/**
+	 * Averages the given column over the rows matching the conditions of this query. Ordering, limits and
+	 * projections are ignored.
+	 * 
+	 * @param column	the column name
+	 * @return	the average, or null when no row matches
+	 */
+	public Double avg(final String column) {
+		checkColumn(column);
+		return (Double) aggregate("avg", column, TypeConverters.DOUBLE, null).get(null);
+	}
+
+	/**
+	 * Returns the smallest value of the given column among the rows matching the conditions of this query,
+	 * converted to the field type. Ordering, limits and projections are ignored.
+	 * 
+	 * @param column	the column name
+	 * @return	the value, or null when no row matches
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> V min(final String column) {
+		return (V) aggregate("min", column, getReader(column), null).get(null);
+	}
+
+	/**
+	 * Returns the largest value of the given column among the rows matching the conditions of this query,
+	 * converted to the field type. Ordering, limits and projections are ignored.
+	 * 
+	 * @param column	the column name
+	 * @return	the value, or null when no row matches
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> V max(final String column) {
+		return (V) aggregate("max", column, getReader(column), null).get(null);
+	}
+
+	/**
+	 * Groups the rows matching the conditions of this query by the given column, to compute one aggregate per
+	 * distinct value:
+	 * 
+	 * <pre>
+	 * Map&lt;String, Integer&gt; perCity = Model.query(Contact.class).groupBy("city").count();
+	 * </pre>
+	 * 
+	 * @param column	the column name
+	 * @return	the grouped query
+	 */
+	public GroupedQuery<T> groupBy(final String column) {
+		getReader(column);
+		return new GroupedQuery<T>(this, column);
+	}
+
+	/**
+	 * Computes an aggregate function over the rows matching the conditions of this query, in one single
+	 * statement. Without a group column, the result has one single entry whose key is null.
+	 * 
+	 * @param function	the SQL aggregate function
+	 * @param expression	the aggregated column or expression
+	 * @param reader	the converter that reads the aggregate value
+	 * @param group	the group column, or null
+	 * @return	the aggregate values by group, ordered by group
+	 */
+	Map<Object, Object> aggregate(final String function, final String expression, final TypeConverter reader,
+			final String group) {
+		final List<String> arguments = new ArrayList<String>(params);
+		final StringBuilder sql = new StringBuilder("SELECT ");
+		if (group != null) {
+			sql.append(group);
+			sql.append(", ");
+		}
+		sql.append(function);
+		sql.append("(");
+		sql.append(expression);
+		sql.append(") FROM ");
+		sql.append(metadata.getTableName());
+		appendWhere(sql, arguments);
+		if (group != null) {
+			sql.append(" GROUP BY ");
+			sql.append(group);
+			sql.append(" ORDER BY ");
+			sql.append(group);
+		}
+
+		final String[] values = toArray(arguments);
+		final TypeConverter keyReader = (group != null ? getReader(group) : null);
+		final OperationTiming timing = OperationTiming.start(OperationType.QUERY, cls, sql.toString());
+		final Map<Object, Object> result = Beans.getBean(DatabaseAccess.class).read(
+				new DatabaseWork<Map<Object, Object>>() {
+
+					public Map<Object, Object> execute(final SQLiteDatabase database) {
+						final Map<Object, Object> result = new LinkedHashMap<Object, Object>();
+						final Cursor cursor = database.rawQuery(sql.toString(), values);
+						try {
+							while (cursor.moveToNext()) {
+								if (keyReader != null) {
+									result.put(read(keyReader, cursor, 0), read(reader, cursor, 1));
+								} else {
+									result.put(null, read(reader, cursor, 0));
+								}
+							}
+						} finally {
+							cursor.close();
+						}
+						return result;
+					}
+
+				}, timing);
+		if (timing != null) {
+			timing.report(result.size());
+		}
+		return result;
+	}
+
+	/**
+	 * Reads an aggregate value or group key, keeping SQL NULL as null: some converters, such as the boolean
+	 * one, read it as a default value.
+	 */
+	private static Object read(final TypeConverter reader, final Cursor cursor, final int index) {
+		return cursor.isNull(index) ? null : reader.read(cursor, index);
+	}
+
+	/**
+	 * Returns the converter that reads values of the given column.
+	 * 
+	 * @param column	the column name
+	 * @return	the converter
+	 */
+	TypeConverter getReader(final String column) {
+		checkColumn(column);
+		if (ID.equals(column)) {
+			return TypeConverters.INTEGER;
+		}
+		final TypeConverter converter = metadata.getColumn(column).getConverter();
+		if (!converter.isReadable()) {
+			throw new IllegalArgumentException("Column " + column + " of class " + cls.getName() + " cannot be read");
+		}
+		return converter;
+	}
+
+	private String toCountSQL(final List<String> arguments) {
+		final StringBuilder sql = new StringBuilder("SELECT count(1) FROM ");
+		sql.append(metadata.getTableName());
+		appendWhere(sql, arguments);
+		return sql.toString();
+	}
+
+	/**
+	 * Generates the SELECT statement of this query.
+	 * 
+	 * @param arguments	the statement parameters, to which the keyset parameters are appended
+	 * @param limit	the maximum number of rows, or -1
+	 * @return	the statement
+	 */
+	private String toSQL(final List<String> arguments, final int limit) {
+		final StringBuilder sql = new StringBuilder("SELECT ");
+		if (projection == null) {
+			sql.append("*");
+		} else {
+			sql.append(ID);
+			for (String column : projection) {
+				if (!ID.equals(column)) {
+					sql.append(", ");
+					sql.append(column);
+				}
+			}
+		}
+		sql.append(" FROM ");
+		sql.append(metadata.getTableName());
+		appendWhere(sql, arguments);
+
+		if (!orderColumns.isEmpty() || seek != null) {
+			sql.append(" ORDER BY ");
+			for (int i = 0; i < orderColumns.size(); i++) {
+				sql.append(orderColumns.get(i));
+				sql.append(orderAscending.get(i) ? " ASC, " : " DESC, ");
+			}
+			if (!orderColumns.contains(ID)) {
+				sql.append(ID);
+				sql.append(" ASC");
+			} else {
+				sql.setLength(sql.length() - 2);
+			}
+		}
+		if (limit >= 0 || offset >= 0) {
+			sql.append(" LIMIT ");
+			sql.append(limit);
+		}
+		if (offset >= 0) {
+			sql.append(" OFFSET ");
+			sql.append(offset);
+		}
+		return sql.toString();
+	}
+
+	private void appendWhere(final StringBuilder sql, final List<String> arguments) {
+		final List<String> clauses = new ArrayList<String>(conditions);
+		if (seek != null) {
+			clauses.add(getSeekCondition(arguments));
+		}
+		for (int i = 0; i < clauses.size(); i++) {
+			sql.append(i == 0 ? " WHERE (" : " AND (");
+			sql.append(clauses.get(i));
+			sql.append(")");
+		}
+	}
+
+	/**
+	 * Builds the keyset condition (c1 &gt; v1) OR (c1 = v1 AND c2 &gt; v2) OR ... over the ordering columns
+	 * followed by the id, comparing with &lt; on descending columns.
+	 * 
+	 * @param arguments	the list to which the condition parameters are appended
+	 * @return	the condition
+	 */
+	private String getSeekCondition(final List<String> arguments) {
+		final List<String> columns = new ArrayList<String>(orderColumns);
+		final List<Boolean> ascending = new ArrayList<Boolean>(orderAscending);
+		if (!columns.contains(ID)) {
+			columns.add(ID);
+			ascending.add(Boolean.TRUE);
+		}
+
+		final StringBuilder condition = new StringBuilder();
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0) {
+				condition.append(" OR ");
+			}
+			condition.append("(");
+			for (int j = 0; j < i; j++) {
+				condition.append(columns.get(j));
+				condition.append(" = ? AND ");
+				arguments.add(getSeekValue(columns.get(j)));
+			}
+			condition.append(columns.get(i));
+			condition.append(ascending.get(i) ? " > ?" : " < ?");
+			arguments.add(getSeekValue(columns.get(i)));
+			condition.append(")");
+		}
+		return condition.toString();
+	}
+
+	private String getSeekValue(final String column) {
+		if (ID.equals(column)) {
+			return String.valueOf(seek._id);
+		}
+		final ColumnMetadata metadataColumn = metadata.getColumn(column);
+		return metadataColumn.toParameter(metadataColumn.get(seek));
+	}
+
+	private List<T> include(final List<T> models, final String[] relations) {
+		if (relations.length > 0) {
+			Relations.include(cls, models, relations);
+		}
+		return models;
+	}
+
+	private T include(final T model, final String[] relations) {
+		if (model != null && relations.length > 0) {
+			Relations.include(cls, Collections.singletonList(model), relations);
+		}
+		return model;
+	}
+
+	private static String[] toArray(final List<String> arguments) {
+		return arguments.toArray(new String[arguments.size()]);
+	}
+
+	private static DatabaseExecutor getExecutor() {
+		return Beans.getBean(DatabaseExecutor.class);
+	}
+
+	void checkColumn(final String column) {
+		if (!ID.equals(column) && metadata.getColumn(column) == null) {
+			throw new IllegalArgumentException("Class " + cls.getName() + " has no persistent column " + column);
+		}
+	}
+
+}
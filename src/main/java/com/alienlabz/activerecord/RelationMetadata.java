@@ -0,0 +1,211 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+
+import com.alienlabz.activerecord.annotation.HasMany;
+import com.alienlabz.activerecord.annotation.ManyToMany;
+
+/**
+ * Compiled description of one to-many relationship of a model class, declared with {@link HasMany} or
+ * {@link ManyToMany}.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class RelationMetadata {
+	static final String OWNER_COLUMN = "owner_id";
+	static final String TARGET_COLUMN = "target_id";
+
+	private final Field field;
+	private final Class<? extends Model> targetType;
+	private final String foreignKey;
+	private final String joinTable;
+	private final Class<?> collectionType;
+
+	private RelationMetadata(final Field field, final Class<? extends Model> targetType, final String foreignKey,
+			final String joinTable) {
+		this.field = field;
+		this.targetType = targetType;
+		this.foreignKey = foreignKey;
+		this.joinTable = joinTable;
+		this.collectionType = getCollectionType(field);
+		this.field.setAccessible(true);
+	}
+
+	/**
+	 * Returns the relationship declared by the given field, or null when the field is not annotated.
+	 * 
+	 * @param owner	the owner class
+	 * @param tableName	the owner table name
+	 * @param field	the field
+	 * @return	the relationship
+	 */
+	static RelationMetadata of(final Class<?> owner, final String tableName, final Field field) {
+		final HasMany hasMany = field.getAnnotation(HasMany.class);
+		final ManyToMany manyToMany = field.getAnnotation(ManyToMany.class);
+		if (hasMany == null && manyToMany == null) {
+			return null;
+		}
+
+		final Class<? extends Model> target = getElementType(field);
+		if (hasMany != null) {
+			String foreignKey = hasMany.foreignKey();
+			if (foreignKey.length() == 0) {
+				final String name = owner.getSimpleName();
+				foreignKey = Character.toLowerCase(name.charAt(0)) + name.substring(1);
+			}
+			return new RelationMetadata(field, target, foreignKey, null);
+		}
+
+		String joinTable = manyToMany.joinTable();
+		if (joinTable.length() == 0) {
+			joinTable = tableName + "_" + field.getName();
+		}
+		return new RelationMetadata(field, target, null, joinTable);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Class<? extends Model> getElementType(final Field field) {
+		if (!Collection.class.isAssignableFrom(field.getType())) {
+			throw new IllegalArgumentException("Relationship field " + field + " must be a Collection.");
+		}
+		final Type generic = field.getGenericType();
+		if (generic instanceof ParameterizedType) {
+			final Type element = ((ParameterizedType) generic).getActualTypeArguments()[0];
+			if (element instanceof Class && Model.class.isAssignableFrom((Class<?>) element)) {
+				return (Class<? extends Model>) element;
+			}
+		}
+		throw new IllegalArgumentException("Relationship field " + field + " must declare a Model element type.");
+	}
+
+	/**
+	 * Returns the collection class instantiated to load the given field: the declared class itself when it is
+	 * concrete, or else an ArrayList or a LinkedHashSet when the declared interface accepts one of them.
+	 * 
+	 * @param field	the field
+	 * @return	the class
+	 */
+	private static Class<?> getCollectionType(final Field field) {
+		final Class<?> type = field.getType();
+		if (!type.isInterface() && !Modifier.isAbstract(type.getModifiers())) {
+			try {
+				type.getConstructor();
+				return type;
+			} catch (NoSuchMethodException e) {
+				throw new IllegalArgumentException("Relationship field " + field
+						+ " must declare a collection class with a public no-arg constructor.");
+			}
+		}
+		if (type.isAssignableFrom(ArrayList.class)) {
+			return ArrayList.class;
+		}
+		if (type.isAssignableFrom(LinkedHashSet.class)) {
+			return LinkedHashSet.class;
+		}
+		throw new IllegalArgumentException("Relationship field " + field + " must be declared as a List, a Set, a "
+				+ "Collection or a concrete collection class.");
+	}
+
+	public String getName() {
+		return field.getName();
+	}
+
+	public Class<? extends Model> getTargetType() {
+		return targetType;
+	}
+
+	/**
+	 * Returns true whether the relationship goes through a join table.
+	 * 
+	 * @return	a boolean
+	 */
+	public boolean isManyToMany() {
+		return joinTable != null;
+	}
+
+	/**
+	 * Returns the foreign key column of the target table, for {@link HasMany} relationships.
+	 * 
+	 * @return	the column name
+	 */
+	public String getForeignKey() {
+		return foreignKey;
+	}
+
+	/**
+	 * Returns the join table name, for {@link ManyToMany} relationships.
+	 * 
+	 * @return	the table name
+	 */
+	public String getJoinTable() {
+		return joinTable;
+	}
+
+	/**
+	 * Generates the DDL creation statement of the join table. It has no effect when the table already exists.
+	 * 
+	 * @return	the statement
+	 */
+	public String getSQLCreateJoinTable() {
+		return "CREATE TABLE IF NOT EXISTS " + joinTable + " (" + OWNER_COLUMN + " INTEGER NOT NULL, " + TARGET_COLUMN
+				+ " INTEGER NOT NULL, PRIMARY KEY (" + OWNER_COLUMN + ", " + TARGET_COLUMN + "));";
+	}
+
+	/**
+	 * Returns the collection currently assigned to the given owner, or null when the relationship was not loaded.
+	 * 
+	 * @param owner	the owner
+	 * @return	the collection
+	 */
+	@SuppressWarnings("unchecked")
+	Collection<Model> get(final Object owner) {
+		try {
+			return (Collection<Model>) field.get(owner);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Assigns a new collection with the given members to the owner: an instance of the declared class when it
+	 * is concrete, or else a LinkedHashSet for Set fields and an ArrayList otherwise.
+	 * 
+	 * @param owner	the owner
+	 * @param members	the related models
+	 */
+	@SuppressWarnings("unchecked")
+	void set(final Object owner, final Collection<Model> members) {
+		try {
+			final Collection<Model> value = (Collection<Model>) collectionType.newInstance();
+			value.addAll(members);
+			field.set(owner, value);
+		} catch (InstantiationException e) {
+			throw new RuntimeException(e);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+}
@@ -0,0 +1,437 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.alienlabz.util.Beans;
+
+/**
+ * Loads and saves the relationships of models.</br>
+ * 
+ * Relationships are loaded for a whole batch of owners at once: the related models of every owner are read with
+ * one query using IN (...) over the owner ids, or two for many-to-many relationships, and then assigned in
+ * memory. Id lists longer than {@link #MAX_PARAMETERS} are split into several queries, as SQLite limits the
+ * number of parameters of a statement.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+final class Relations {
+	private static final int MAX_PARAMETERS = 500;
+	private static final ConcurrentMap<Class<?>, List<RelationMetadata>> inverseRelations = new ConcurrentHashMap<Class<?>, List<RelationMetadata>>();
+
+	private Relations() {
+	}
+
+	/**
+	 * Checks that the given class has a relationship or a belongs-to reference with the given name.
+	 * 
+	 * @param cls	the owner class
+	 * @param name	the relationship name
+	 */
+	static void check(final Class<?> cls, final String name) {
+		final EntityMetadata metadata = EntityMetadata.of(cls);
+		if (metadata.getRelations().containsKey(name)) {
+			return;
+		}
+		final ColumnMetadata column = metadata.getColumn(name);
+		if (column == null || column.getReferencedType() == null) {
+			throw new IllegalArgumentException("Class " + cls.getName() + " has no relationship " + name);
+		}
+	}
+
+	/**
+	 * Loads the given relationships of every given model.
+	 * 
+	 * @param cls	the class of the models
+	 * @param models	the models
+	 * @param names	the relationship names: to-many fields or belongs-to references
+	 */
+	static void include(final Class<?> cls, final Collection<? extends Model> models, final String... names) {
+		if (models.isEmpty()) {
+			return;
+		}
+		final EntityMetadata metadata = EntityMetadata.of(cls);
+		for (String name : names) {
+			check(cls, name);
+			final RelationMetadata relation = metadata.getRelations().get(name);
+			if (relation == null) {
+				includeReference(metadata.getColumn(name), models);
+			} else if (relation.isManyToMany()) {
+				includeManyToMany(relation, models);
+			} else {
+				includeHasMany(cls, relation, models);
+			}
+		}
+	}
+
+	private static void includeReference(final ColumnMetadata column, final Collection<? extends Model> models) {
+		final Set<Integer> ids = new LinkedHashSet<Integer>();
+		for (Model model : models) {
+			final Model reference = (Model) column.get(model);
+			if (reference != null && reference._id != null) {
+				ids.add(reference._id);
+			}
+		}
+
+		final Map<Integer, Model> loaded = new HashMap<Integer, Model>();
+		for (Model target : loadWhereIn(column.getReferencedType(), "_id", ids)) {
+			loaded.put(target._id, target);
+		}
+		for (Model model : models) {
+			final Model reference = (Model) column.get(model);
+			if (reference != null && loaded.containsKey(reference._id)) {
+				column.set(model, loaded.get(reference._id));
+			}
+		}
+	}
+
+	private static void includeHasMany(final Class<?> cls, final RelationMetadata relation,
+			final Collection<? extends Model> models) {
+		final ColumnMetadata foreignKey = EntityMetadata.of(relation.getTargetType()).getColumn(
+				relation.getForeignKey());
+		if (foreignKey == null) {
+			throw new IllegalArgumentException("Class " + relation.getTargetType().getName()
+					+ " has no foreign key column " + relation.getForeignKey());
+		}
+		final boolean stitch = foreignKey.getReferencedType() != null
+				&& foreignKey.getReferencedType().isAssignableFrom(cls);
+
+		final Map<Integer, Model> owners = getOwners(models);
+		final Map<Integer, List<Model>> children = new HashMap<Integer, List<Model>>();
+		for (Model child : loadWhereIn(relation.getTargetType(), relation.getForeignKey(), owners.keySet())) {
+			final Integer ownerId = toId(foreignKey.get(child));
+			List<Model> list = children.get(ownerId);
+			if (list == null) {
+				list = new ArrayList<Model>();
+				children.put(ownerId, list);
+			}
+			list.add(child);
+			if (stitch) {
+				foreignKey.set(child, owners.get(ownerId));
+			}
+		}
+		assign(relation, models, children);
+	}
+
+	private static void includeManyToMany(final RelationMetadata relation, final Collection<? extends Model> models) {
+		final Map<Integer, Model> owners = getOwners(models);
+		final Map<Integer, List<Integer>> links = loadLinks(relation, owners.keySet());
+
+		final Set<Integer> targetIds = new LinkedHashSet<Integer>();
+		for (List<Integer> ids : links.values()) {
+			targetIds.addAll(ids);
+		}
+		final Map<Integer, Model> targets = new HashMap<Integer, Model>();
+		for (Model target : loadWhereIn(relation.getTargetType(), "_id", targetIds)) {
+			targets.put(target._id, target);
+		}
+
+		final Map<Integer, List<Model>> members = new HashMap<Integer, List<Model>>();
+		for (Map.Entry<Integer, List<Integer>> entry : links.entrySet()) {
+			final List<Model> list = new ArrayList<Model>();
+			for (Integer id : entry.getValue()) {
+				final Model target = targets.get(id);
+				if (target != null) {
+					list.add(target);
+				}
+			}
+			members.put(entry.getKey(), list);
+		}
+		assign(relation, models, members);
+	}
+
+	private static Map<Integer, Model> getOwners(final Collection<? extends Model> models) {
+		final Map<Integer, Model> owners = new HashMap<Integer, Model>();
+		for (Model model : models) {
+			if (model._id != null) {
+				owners.put(model._id, model);
+			}
+		}
+		return owners;
+	}
+
+	private static void assign(final RelationMetadata relation, final Collection<? extends Model> models,
+			final Map<Integer, List<Model>> related) {
+		final List<Model> none = new ArrayList<Model>();
+		for (Model model : models) {
+			final List<Model> list = (model._id != null ? related.get(model._id) : null);
+			relation.set(model, list != null ? list : none);
+		}
+	}
+
+	private static Integer toId(final Object value) {
+		if (value instanceof Model) {
+			return ((Model) value)._id;
+		}
+		if (value instanceof Number) {
+			return ((Number) value).intValue();
+		}
+		return value == null ? null : Integer.valueOf(value.toString());
+	}
+
+	/**
+	 * Reads the models of the given class whose column value is one of the given ids. Models held by the
+	 * identity map of the class are returned instead of new instances.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <M extends Model> List<M> loadWhereIn(final Class<M> type, final String column,
+			final Collection<Integer> ids) {
+		final List<M> result = new ArrayList<M>();
+		final EntityCache cache = EntityMetadata.of(type).getCache();
+		for (List<String> chunk : split(ids)) {
+			final long version = (cache != null ? cache.getVersion() : 0);
+			final List<M> loaded = Model.query(type).where(column + " IN (" + placeholders(chunk.size()) + ")",
+					chunk.toArray(new String[chunk.size()])).list();
+			for (M model : loaded) {
+				result.add(cache != null ? (M) cache.share(model, version) : model);
+			}
+		}
+		return result;
+	}
+
+	private static Map<Integer, List<Integer>> loadLinks(final RelationMetadata relation, final Collection<Integer> ownerIds) {
+		final Map<Integer, List<Integer>> links = new HashMap<Integer, List<Integer>>();
+		for (final List<String> chunk : split(ownerIds)) {
+			final String sql = "SELECT " + RelationMetadata.OWNER_COLUMN + ", " + RelationMetadata.TARGET_COLUMN
+					+ " FROM " + relation.getJoinTable() + " WHERE " + RelationMetadata.OWNER_COLUMN + " IN ("
+					+ placeholders(chunk.size()) + ")";
+
+			final OperationTiming timing = OperationTiming.start(OperationType.QUERY, relation.getJoinTable(), sql);
+
+			final int rows = Beans.getBean(DatabaseAccess.class).read(new DatabaseWork<Integer>() {
+
+				public Integer execute(final SQLiteDatabase database) {
+					final Cursor cursor = database.rawQuery(sql, chunk.toArray(new String[chunk.size()]));
+					try {
+						while (cursor.moveToNext()) {
+							List<Integer> targets = links.get(cursor.getInt(0));
+							if (targets == null) {
+								targets = new ArrayList<Integer>();
+								links.put(cursor.getInt(0), targets);
+							}
+							targets.add(cursor.getInt(1));
+						}
+						return cursor.getCount();
+					} finally {
+						cursor.close();
+					}
+				}
+
+			}, timing);
+			if (timing != null) {
+				timing.report(rows);
+			}
+		}
+		return links;
+	}
+
+	private static List<List<String>> split(final Collection<Integer> ids) {
+		final List<List<String>> chunks = new ArrayList<List<String>>();
+		List<String> chunk = null;
+		for (Integer id : ids) {
+			if (chunk == null || chunk.size() == MAX_PARAMETERS) {
+				chunk = new ArrayList<String>();
+				chunks.add(chunk);
+			}
+			chunk.add(id.toString());
+		}
+		return chunks;
+	}
+
+	private static String placeholders(final int count) {
+		final StringBuilder sql = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sql.append(i == 0 ? "?" : ", ?");
+		}
+		return sql.toString();
+	}
+
+	/**
+	 * Brings the join table rows of every loaded many-to-many relationship of the given model in line with its
+	 * collection. The stored links are read first and only the missing ones are inserted and the stale ones
+	 * deleted, so saving an unchanged relationship writes nothing and publishes no change. Relationships whose
+	 * collection is null were never loaded and are left untouched; members without id are skipped.
+	 * 
+	 * @param database	the database, opened for writing
+	 * @param metadata	the model metadata
+	 * @param model	the saved model
+	 */
+	static void saveLinks(final SQLiteDatabase database, final EntityMetadata metadata, final Model model) {
+		for (RelationMetadata relation : metadata.getRelations().values()) {
+			final Collection<Model> members = relation.get(model);
+			if (!relation.isManyToMany() || members == null) {
+				continue;
+			}
+
+			final Set<Long> wanted = new LinkedHashSet<Long>();
+			for (Model member : members) {
+				if (member != null && member._id != null) {
+					wanted.add(Long.valueOf(member._id));
+				}
+			}
+			final Set<Long> stale = readLinks(database, relation, model);
+			final Set<Long> missing = new LinkedHashSet<Long>(wanted);
+			missing.removeAll(stale);
+			stale.removeAll(wanted);
+			if (missing.isEmpty() && stale.isEmpty()) {
+				continue;
+			}
+
+			final boolean transaction = !database.inTransaction();
+			if (transaction) {
+				database.beginTransaction();
+			}
+			final SQLiteStatement delete = database.compileStatement("DELETE FROM " + relation.getJoinTable()
+					+ " WHERE " + RelationMetadata.OWNER_COLUMN + "=? AND " + RelationMetadata.TARGET_COLUMN + "=?");
+			final SQLiteStatement insert = database.compileStatement("INSERT OR IGNORE INTO "
+					+ relation.getJoinTable() + " (" + RelationMetadata.OWNER_COLUMN + ", "
+					+ RelationMetadata.TARGET_COLUMN + ") VALUES (?, ?)");
+			try {
+				for (Long target : stale) {
+					delete.bindLong(1, model._id);
+					delete.bindLong(2, target);
+					delete.execute();
+				}
+				for (Long target : missing) {
+					insert.bindLong(1, model._id);
+					insert.bindLong(2, target);
+					insert.executeInsert();
+				}
+				TableChanges.mark(relation.getJoinTable());
+				if (transaction) {
+					database.setTransactionSuccessful();
+				}
+			} finally {
+				delete.close();
+				insert.close();
+				if (transaction) {
+					database.endTransaction();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the ids of the models currently linked to the given owner through a many-to-many relationship.
+	 */
+	private static Set<Long> readLinks(final SQLiteDatabase database, final RelationMetadata relation,
+			final Model model) {
+		final Set<Long> links = new LinkedHashSet<Long>();
+		final Cursor cursor = database.rawQuery("SELECT " + RelationMetadata.TARGET_COLUMN + " FROM "
+				+ relation.getJoinTable() + " WHERE " + RelationMetadata.OWNER_COLUMN + "=?",
+				new String[] { model._id.toString() });
+		try {
+			while (cursor.moveToNext()) {
+				links.add(Long.valueOf(cursor.getLong(0)));
+			}
+		} finally {
+			cursor.close();
+		}
+		return links;
+	}
+
+	/**
+	 * Deletes the join table rows of every many-to-many relationship of the given model, and the rows linking
+	 * models of other classes to it.
+	 * 
+	 * @param database	the database, opened for writing
+	 * @param metadata	the model metadata
+	 * @param model	the model being deleted
+	 */
+	static void deleteLinks(final SQLiteDatabase database, final EntityMetadata metadata, final Model model) {
+		final String[] id = new String[] { model._id.toString() };
+		for (RelationMetadata relation : metadata.getRelations().values()) {
+			if (relation.isManyToMany()) {
+				database.delete(relation.getJoinTable(), RelationMetadata.OWNER_COLUMN + "=?", id);
+				TableChanges.mark(relation.getJoinTable());
+			}
+		}
+		for (RelationMetadata relation : getInverseRelations(metadata.getType())) {
+			database.delete(relation.getJoinTable(), RelationMetadata.TARGET_COLUMN + "=?", id);
+			TableChanges.mark(relation.getJoinTable());
+		}
+	}
+
+	/**
+	 * Deletes the join table rows of every many-to-many relationship of the rows matching the given condition,
+	 * and the rows linking models of other classes to them.
+	 * 
+	 * @param database	the database, opened for writing
+	 * @param metadata	the model metadata
+	 * @param query	the condition, or null for every row
+	 * @param params	the parameters of the condition
+	 */
+	static void deleteLinks(final SQLiteDatabase database, final EntityMetadata metadata, final String query,
+			final String[] params) {
+		for (RelationMetadata relation : metadata.getRelations().values()) {
+			if (relation.isManyToMany()) {
+				deleteLinks(database, metadata, relation, RelationMetadata.OWNER_COLUMN, query, params);
+			}
+		}
+		for (RelationMetadata relation : getInverseRelations(metadata.getType())) {
+			deleteLinks(database, metadata, relation, RelationMetadata.TARGET_COLUMN, query, params);
+		}
+	}
+
+	private static void deleteLinks(final SQLiteDatabase database, final EntityMetadata metadata,
+			final RelationMetadata relation, final String column, final String query, final String[] params) {
+		if (query == null) {
+			database.delete(relation.getJoinTable(), null, null);
+		} else {
+			database.delete(relation.getJoinTable(), column + " IN (SELECT _id FROM " + metadata.getTableName()
+					+ " WHERE " + query + ")", params);
+		}
+		TableChanges.mark(relation.getJoinTable());
+	}
+
+	/**
+	 * Returns the many-to-many relationships of every model class whose target is the given class, looked up
+	 * once through the model classes of {@link DBOpenHelper}.
+	 * 
+	 * @param cls	the target class
+	 * @return	the relationships
+	 */
+	private static List<RelationMetadata> getInverseRelations(final Class<?> cls) {
+		List<RelationMetadata> relations = inverseRelations.get(cls);
+		if (relations == null) {
+			relations = new ArrayList<RelationMetadata>();
+			for (Class<?> owner : Beans.getBean(DBOpenHelper.class).getModelClasses()) {
+				for (RelationMetadata relation : EntityMetadata.of(owner).getRelations().values()) {
+					if (relation.isManyToMany() && relation.getTargetType().equals(cls)) {
+						relations.add(relation);
+					}
+				}
+			}
+			inverseRelations.putIfAbsent(cls, relations);
+		}
+		return relations;
+	}
+
+}
@@ -0,0 +1,58 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import android.database.Cursor;
+
+/**
+ * Maps cursor rows to instances of one model class without reflection.</br>
+ * 
+ * Implementations are generated at compile time by the aliendroid-activerecord-processor annotation processor,
+ * as a class named after the model class with the "$$Mapper" suffix. When no generated mapper exists, models
+ * are mapped through reflection.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ * @param <T>	the model type
+ */
+public interface RowMapper<T extends Model> {
+
+	/**
+	 * Returns the persistent column names handled by this mapper, in the order used by
+	 * {@link #map(Cursor, int[], ColumnMetadata[], Model)}.
+	 * 
+	 * @return	the names
+	 */
+	String[] getColumnNames();
+
+	/**
+	 * Creates a new instance of the model class.
+	 * 
+	 * @return	the model
+	 */
+	T newInstance();
+
+	/**
+	 * Assigns the values of the current cursor row to the given model.
+	 * 
+	 * @param cursor	the cursor, positioned on a row
+	 * @param indexes	the cursor index of each column, or -1 when the column is not in the projection
+	 * @param columns	the columns, in the order of {@link #getColumnNames()}
+	 * @param model	the model
+	 */
+	void map(Cursor cursor, int[] indexes, ColumnMetadata[] columns, T model);
+
+}
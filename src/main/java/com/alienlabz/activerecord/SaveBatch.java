@@ -0,0 +1,649 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Saves many models against one open database, compiling the INSERT and UPDATE statements of each model class
+ * once and reusing them for every row of that class.</br>
+ * 
+ * The caller is responsible for the transaction and for calling {@link #close()} when done. The ids and snapshots
+ * of the written models are assigned as the rows are written, since later rows and links may refer to them, but
+ * they only become final once the caller reports the outcome of the transaction: {@link #commit()} puts the
+ * models in their identity maps and {@link #rollback()} restores the ids and snapshots they had before.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+class SaveBatch {
+	private static final int MAX_PARTIAL_UPDATES = 16;
+	private static final ConcurrentMap<Class<?>, Map<String, String>> partialUpdateSQL = new ConcurrentHashMap<Class<?>, Map<String, String>>();
+
+	private final SQLiteDatabase database;
+	private final StatementCache cache;
+	private final Map<Class<?>, Statements> statements = new HashMap<Class<?>, Statements>();
+	private final List<Written> written = new ArrayList<Written>();
+
+	SaveBatch(final SQLiteDatabase database, final StatementCache cache) {
+		this.database = database;
+		this.cache = cache;
+	}
+
+	/**
+	 * Inserts the model when it has no id yet, assigning the generated one, or updates it otherwise. A model
+	 * whose columns and loaded relationships did not change since it was read or saved writes nothing and
+	 * publishes no change.
+	 * 
+	 * @param model	the model
+	 */
+	void save(final Model model) {
+		final Statements compiled = getStatements(model.getClass());
+		final ColumnMetadata[] columns = compiled.metadata.getColumns();
+		written.add(new Written(model, compiled.metadata.getCache()));
+
+		boolean changed = true;
+		if (model._id == null) {
+			final SQLiteStatement insert = compiled.getInsert();
+			bind(insert, compiled.metadata, model);
+			final long newId = insert.executeInsert();
+			if (newId != -1) {
+				model._id = (int) newId;
+			}
+		} else {
+			final boolean[] changedColumns = model.getChangedColumns(columns);
+			if (changedColumns == null) {
+				final SQLiteStatement update = compiled.getUpdate();
+				bind(update, compiled.metadata, model);
+				update.bindLong(columns.length + 1, model._id);
+				update.execute();
+			} else {
+				changed = updateChanged(compiled, model, changedColumns);
+			}
+		}
+		model.takeSnapshot(columns);
+		if (changed) {
+			TableChanges.mark(compiled.metadata.getTableName());
+		}
+
+		if (!compiled.metadata.getRelations().isEmpty()) {
+			Relations.saveLinks(database, compiled.metadata, model);
+		}
+	}
+
+	/**
+	 * Updates the row with the id of the model or, when the id is not set, with the same natural key, and
+	 * inserts the model when no row was updated. The id of the written row is assigned to the model. Run it in
+	 * a transaction, so that both statements apply together. The row is updated in place, never deleted and
+	 * inserted again, so a conflict on another UNIQUE column fails instead of removing the conflicting row.
+	 * The natural key is only looked up when a write fails, to report a key that belongs to another row.
+	 * 
+	 * @param model	the model
+	 * @throws IllegalArgumentException	when the id of the model and its natural key belong to different rows
+	 */
+	void upsert(final Model model) {
+		final Statements compiled = getStatements(model.getClass());
+		final ColumnMetadata[] columns = compiled.metadata.getColumns();
+		final ColumnMetadata[] key = compiled.metadata.getNaturalKey();
+		written.add(new Written(model, compiled.metadata.getCache()));
+
+		try {
+			long id = 0;
+			if (model._id != null) {
+				final SQLiteStatement update = compiled.getUpdate();
+				bind(update, compiled.metadata, model);
+				update.bindLong(columns.length + 1, model._id);
+				update.execute();
+				if (compiled.getChanges().simpleQueryForLong() > 0) {
+					id = model._id;
+				}
+			} else if (key.length > 0) {
+				final SQLiteStatement update = compiled.getKeyUpdate();
+				bind(update, compiled.metadata, model);
+				bindKey(update, columns.length, key, model);
+				update.execute();
+				final SQLiteStatement updated = compiled.getUpdatedKeyLookup();
+				updated.clearBindings();
+				bindKey(updated, 0, key, model);
+				id = updated.simpleQueryForLong();
+			}
+
+			if (id == 0) {
+				final SQLiteStatement insert = compiled.getInsertWithId();
+				bind(insert, compiled.metadata, model);
+				if (model._id == null) {
+					insert.bindNull(columns.length + 1);
+				} else {
+					insert.bindLong(columns.length + 1, model._id);
+				}
+				id = insert.executeInsert();
+			}
+			if (id > 0) {
+				model._id = (int) id;
+			}
+		} catch (SQLException e) {
+			final Integer keyId = findByNaturalKey(compiled, model);
+			if (model._id != null && keyId != null && !model._id.equals(keyId)) {
+				throw new IllegalArgumentException("The natural key of " + model.getClass().getName()
+						+ " with id " + model._id + " belongs to the row with id " + keyId, e);
+			}
+			throw e;
+		}
+		model.takeSnapshot(columns);
+		TableChanges.mark(compiled.metadata.getTableName());
+
+		if (!compiled.metadata.getRelations().isEmpty()) {
+			Relations.saveLinks(database, compiled.metadata, model);
+		}
+	}
+
+	/**
+	 * Returns the id of the row with the same natural key as the given model, or null when there is none or
+	 * the class declares no natural key.
+	 */
+	private Integer findByNaturalKey(final Statements compiled, final Model model) {
+		final ColumnMetadata[] key = compiled.metadata.getNaturalKey();
+		if (key.length == 0) {
+			return null;
+		}
+		final SQLiteStatement lookup = compiled.getKeyLookup();
+		lookup.clearBindings();
+		bindKey(lookup, 0, key, model);
+		final long id = lookup.simpleQueryForLong();
+		return id > 0 ? Integer.valueOf((int) id) : null;
+	}
+
+	/**
+	 * Binds the natural key columns of the model after the given number of already bound parameters.
+	 */
+	private void bindKey(final SQLiteStatement statement, final int offset, final ColumnMetadata[] key,
+			final Model model) {
+		for (int i = 0; i < key.length; i++) {
+			key[i].getConverter().bind(statement, offset + i + 1, key[i].get(model));
+		}
+	}
+
+	/**
+	 * Updates only the given changed columns. Nothing is written when no column changed.
+	 * 
+	 * @return whether the row was updated
+	 */
+	private boolean updateChanged(final Statements compiled, final Model model, final boolean[] changed) {
+		final ColumnMetadata[] columns = compiled.metadata.getColumns();
+		int index = 0;
+		SQLiteStatement update = null;
+		for (int i = 0; i < columns.length; i++) {
+			if (!changed[i]) {
+				continue;
+			}
+			if (update == null) {
+				update = compiled.getUpdate(changed);
+				update.clearBindings();
+			}
+			columns[i].getConverter().bind(update, ++index, columns[i].get(model));
+		}
+		if (update == null) {
+			return false;
+		}
+		update.bindLong(index + 1, model._id);
+		update.execute();
+		return true;
+	}
+
+	/**
+	 * Puts the models written since the last commit or rollback in their identity maps, once the transaction
+	 * that wrote them committed.
+	 */
+	void commit() {
+		for (Written entry : written) {
+			if (entry.cache != null) {
+				entry.cache.put(entry.model);
+			}
+		}
+		written.clear();
+	}
+
+	/**
+	 * Restores the ids and snapshots the models written since the last commit or rollback had before, once the
+	 * transaction that wrote them rolled back, so that saving them again writes them again. Their identity map
+	 * entries are evicted, as their values no longer match the rows.
+	 */
+	void rollback() {
+		for (int i = written.size() - 1; i >= 0; i--) {
+			final Written entry = written.get(i);
+			entry.model._id = entry.id;
+			entry.model.restoreSnapshot(entry.snapshot);
+			if (entry.cache != null && entry.id != null) {
+				entry.cache.remove(entry.id);
+			}
+		}
+		written.clear();
+	}
+
+	/**
+	 * Releases the compiled statements.
+	 */
+	void close() {
+		for (Statements compiled : statements.values()) {
+			compiled.close();
+		}
+		statements.clear();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void bind(final SQLiteStatement statement, final EntityMetadata metadata, final Model model) {
+		final ColumnMetadata[] columns = metadata.getColumns();
+		final ValuesBinder<Model> binder = (ValuesBinder<Model>) metadata.getValuesBinder();
+		statement.clearBindings();
+		if (binder != null) {
+			binder.bind(statement, columns, model);
+			return;
+		}
+		for (int i = 0; i < columns.length; i++) {
+			columns[i].getConverter().bind(statement, i + 1, columns[i].get(model));
+		}
+	}
+
+	private Statements getStatements(final Class<?> cls) {
+		Statements compiled = statements.get(cls);
+		if (compiled == null) {
+			compiled = new Statements(EntityMetadata.of(cls));
+			statements.put(cls, compiled);
+		}
+		return compiled;
+	}
+
+	/**
+	 * State of a written model before the write.
+	 */
+	private static final class Written {
+		private final Model model;
+		private final Integer id;
+		private final Object[] snapshot;
+		private final EntityCache cache;
+
+		Written(final Model model, final EntityCache cache) {
+			this.model = model;
+			this.id = model._id;
+			this.snapshot = model.getSnapshot();
+			this.cache = cache;
+		}
+	}
+
+	/**
+	 * Compiled statements of one model class, created on first use.
+	 */
+	private class Statements {
+		private final EntityMetadata metadata;
+		private SQLiteStatement insert;
+		private SQLiteStatement update;
+		private SQLiteStatement insertWithId;
+		private SQLiteStatement keyLookup;
+		private SQLiteStatement keyUpdate;
+		private SQLiteStatement updatedKeyLookup;
+		private SQLiteStatement changes;
+		private final Map<String, SQLiteStatement> partialUpdates = new HashMap<String, SQLiteStatement>();
+
+		Statements(final EntityMetadata metadata) {
+			this.metadata = metadata;
+		}
+
+		SQLiteStatement getInsert() {
+			if (insert == null) {
+				insert = database.compileStatement(cache.getSQL(metadata.getType(), "insert",
+						new StatementCache.SQLFactory() {
+
+							public String create() {
+								return getSQLInsert(metadata);
+							}
+
+						}));
+			}
+			return insert;
+		}
+
+		SQLiteStatement getInsertWithId() {
+			if (insertWithId == null) {
+				insertWithId = database.compileStatement(cache.getSQL(metadata.getType(), "insertWithId",
+						new StatementCache.SQLFactory() {
+
+							public String create() {
+								return getSQLInsertWithId(metadata);
+							}
+
+						}));
+			}
+			return insertWithId;
+		}
+
+		SQLiteStatement getKeyLookup() {
+			if (keyLookup == null) {
+				keyLookup = database.compileStatement(cache.getSQL(metadata.getType(), "keyLookup",
+						new StatementCache.SQLFactory() {
+
+							public String create() {
+								return getSQLKeyLookup(metadata);
+							}
+
+						}));
+			}
+			return keyLookup;
+		}
+
+		SQLiteStatement getKeyUpdate() {
+			if (keyUpdate == null) {
+				keyUpdate = database.compileStatement(cache.getSQL(metadata.getType(), "keyUpdate",
+						new StatementCache.SQLFactory() {
+
+							public String create() {
+								return getSQLKeyUpdate(metadata);
+							}
+
+						}));
+			}
+			return keyUpdate;
+		}
+
+		SQLiteStatement getUpdatedKeyLookup() {
+			if (updatedKeyLookup == null) {
+				updatedKeyLookup = database.compileStatement(cache.getSQL(metadata.getType(), "updatedKeyLookup",
+						new StatementCache.SQLFactory() {
+
+							public String create() {
+								return getSQLUpdatedKeyLookup(metadata);
+							}
+
+						}));
+			}
+			return updatedKeyLookup;
+		}
+
+		SQLiteStatement getChanges() {
+			if (changes == null) {
+				changes = database.compileStatement("SELECT changes()");
+			}
+			return changes;
+		}
+
+		SQLiteStatement getUpdate() {
+			if (update == null) {
+				update = database.compileStatement(cache.getSQL(metadata.getType(), "update",
+						new StatementCache.SQLFactory() {
+
+							public String create() {
+								return getSQLUpdate(metadata);
+							}
+
+						}));
+			}
+			return update;
+		}
+
+		SQLiteStatement getUpdate(final boolean[] changed) {
+			final StringBuilder mask = new StringBuilder(changed.length);
+			for (boolean column : changed) {
+				mask.append(column ? '1' : '0');
+			}
+			final String key = mask.toString();
+
+			SQLiteStatement partial = partialUpdates.get(key);
+			if (partial == null) {
+				partial = database.compileStatement(getPartialUpdateSQL(metadata, key, changed));
+				partialUpdates.put(key, partial);
+			}
+			return partial;
+		}
+
+		void close() {
+			for (SQLiteStatement partial : partialUpdates.values()) {
+				partial.close();
+			}
+			if (insert != null) {
+				insert.close();
+			}
+			if (update != null) {
+				update.close();
+			}
+			if (insertWithId != null) {
+				insertWithId.close();
+			}
+			if (keyLookup != null) {
+				keyLookup.close();
+			}
+			if (keyUpdate != null) {
+				keyUpdate.close();
+			}
+			if (updatedKeyLookup != null) {
+				updatedKeyLookup.close();
+			}
+			if (changes != null) {
+				changes.close();
+			}
+		}
+	}
+
+	/**
+	 * Returns the UPDATE statement of the given changed columns. These statements are kept in a small least
+	 * recently used cache per class rather than in the shared {@link StatementCache}, since a class may have a
+	 * different one for every combination of changed columns.
+	 * 
+	 * @param metadata	the class metadata
+	 * @param key	the mask of the changed columns
+	 * @param changed	the changed columns
+	 * @return	the statement
+	 */
+	private static String getPartialUpdateSQL(final EntityMetadata metadata, final String key,
+			final boolean[] changed) {
+		Map<String, String> cached = partialUpdateSQL.get(metadata.getType());
+		if (cached == null) {
+			final Map<String, String> created = new LinkedHashMap<String, String>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+					return size() > MAX_PARTIAL_UPDATES;
+				}
+			};
+			cached = partialUpdateSQL.putIfAbsent(metadata.getType(), created);
+			if (cached == null) {
+				cached = created;
+			}
+		}
+		synchronized (cached) {
+			String sql = cached.get(key);
+			if (sql == null) {
+				sql = getSQLUpdate(metadata, changed);
+				cached.put(key, sql);
+			}
+			return sql;
+		}
+	}
+
+	/**
+	 * Generates the parameterized INSERT statement of the given class, binding every column in order.
+	 * 
+	 * @param metadata	the class metadata
+	 * @return	the statement
+	 */
+	static String getSQLInsert(final EntityMetadata metadata) {
+		final String[] names = metadata.getColumnNames();
+		final StringBuilder sql = new StringBuilder();
+		sql.append("INSERT INTO ");
+		sql.append(metadata.getTableName());
+		if (names.length == 0) {
+			sql.append(" (_id) VALUES (NULL)");
+			return sql.toString();
+		}
+
+		sql.append(" (");
+		for (int i = 0; i < names.length; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(names[i]);
+		}
+		sql.append(") VALUES (");
+		for (int i = 0; i < names.length; i++) {
+			sql.append(i > 0 ? ", ?" : "?");
+		}
+		sql.append(")");
+		return sql.toString();
+	}
+
+	/**
+	 * Generates the parameterized INSERT statement of the given class, binding every column in order and then
+	 * the id, which is generated when bound to null.
+	 * 
+	 * @param metadata	the class metadata
+	 * @return	the statement
+	 */
+	static String getSQLInsertWithId(final EntityMetadata metadata) {
+		final String[] names = metadata.getColumnNames();
+		final StringBuilder sql = new StringBuilder();
+		sql.append("INSERT INTO ");
+		sql.append(metadata.getTableName());
+		sql.append(" (");
+		for (String name : names) {
+			sql.append(name);
+			sql.append(", ");
+		}
+		sql.append("_id) VALUES (");
+		for (int i = 0; i < names.length; i++) {
+			sql.append("?, ");
+		}
+		sql.append("?)");
+		return sql.toString();
+	}
+
+	/**
+	 * Generates the query of the id of the row with the given natural key, binding the key columns in order.
+	 * It returns zero when there is no such row.
+	 * 
+	 * @param metadata	the class metadata
+	 * @return	the statement
+	 */
+	static String getSQLKeyLookup(final EntityMetadata metadata) {
+		final StringBuilder sql = new StringBuilder();
+		sql.append("SELECT ifnull(max(_id), 0) FROM ");
+		sql.append(metadata.getTableName());
+		sql.append(" WHERE ");
+		appendKeyCondition(sql, metadata.getNaturalKey());
+		return sql.toString();
+	}
+
+	/**
+	 * Generates the query of the id of the row with the given natural key, run right after the UPDATE of
+	 * {@link #getSQLKeyUpdate(EntityMetadata)}. It returns zero, without reading the table, when the UPDATE
+	 * changed no row.
+	 * 
+	 * @param metadata	the class metadata
+	 * @return	the statement
+	 */
+	static String getSQLUpdatedKeyLookup(final EntityMetadata metadata) {
+		final StringBuilder sql = new StringBuilder();
+		sql.append("SELECT CASE WHEN changes() > 0 THEN (SELECT _id FROM ");
+		sql.append(metadata.getTableName());
+		sql.append(" WHERE ");
+		appendKeyCondition(sql, metadata.getNaturalKey());
+		sql.append(") ELSE 0 END");
+		return sql.toString();
+	}
+
+	/**
+	 * Generates the parameterized UPDATE statement of the row with the given natural key, binding every column
+	 * in order and then the key columns.
+	 * 
+	 * @param metadata	the class metadata
+	 * @return	the statement
+	 */
+	static String getSQLKeyUpdate(final EntityMetadata metadata) {
+		final StringBuilder sql = new StringBuilder();
+		appendUpdate(sql, metadata, null);
+		sql.append(" WHERE ");
+		appendKeyCondition(sql, metadata.getNaturalKey());
+		return sql.toString();
+	}
+
+	private static void appendKeyCondition(final StringBuilder sql, final ColumnMetadata[] key) {
+		for (int i = 0; i < key.length; i++) {
+			if (i > 0) {
+				sql.append(" AND ");
+			}
+			sql.append(key[i].getName());
+			sql.append("=?");
+		}
+	}
+
+	/**
+	 * Generates the parameterized UPDATE statement of the given class, binding every column in order and the
+	 * id last.
+	 * 
+	 * @param metadata	the class metadata
+	 * @return	the statement
+	 */
+	static String getSQLUpdate(final EntityMetadata metadata) {
+		return getSQLUpdate(metadata, null);
+	}
+
+	/**
+	 * Generates the parameterized UPDATE statement of the given class, binding the selected columns in order
+	 * and the id last.
+	 * 
+	 * @param metadata	the class metadata
+	 * @param selected	the columns to be written, or null for every column
+	 * @return	the statement
+	 */
+	static String getSQLUpdate(final EntityMetadata metadata, final boolean[] selected) {
+		final StringBuilder sql = new StringBuilder();
+		appendUpdate(sql, metadata, selected);
+		sql.append(" WHERE _id=?");
+		return sql.toString();
+	}
+
+	private static void appendUpdate(final StringBuilder sql, final EntityMetadata metadata,
+			final boolean[] selected) {
+		final String[] names = metadata.getColumnNames();
+		sql.append("UPDATE ");
+		sql.append(metadata.getTableName());
+		sql.append(" SET ");
+		boolean first = true;
+		for (int i = 0; i < names.length; i++) {
+			if (selected != null && !selected[i]) {
+				continue;
+			}
+			if (!first) {
+				sql.append(", ");
+			}
+			sql.append(names[i]);
+			sql.append("=?");
+			first = false;
+		}
+		if (first) {
+			sql.append("_id=_id");
+		}
+	}
+
+}
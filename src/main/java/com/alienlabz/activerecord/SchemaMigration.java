@@ -0,0 +1,299 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import roboguice.util.Ln;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Brings existing tables in line with their model classes, keeping their rows.</br>
+ * 
+ * The live schema, read with PRAGMA table_info, is compared with the columns the model declares:
+ * <ul>
+ * <li>missing tables are created;</li>
+ * <li>new columns are added with ALTER TABLE ADD COLUMN, NOT NULL ones with a default value: zero for numbers,
+ * the epoch for dates and an empty string otherwise;</li>
+ * <li>when a column cannot be added that way (UNIQUE columns), when the NOT NULL or UNIQUE constraint of a
+ * column changed, or when a removed column is NOT NULL, the table is rebuilt: a new table is created, the rows
+ * are copied, and it replaces the old one. NULL values of columns that became NOT NULL are copied as the
+ * default value;</li>
+ * <li>missing indexes and full-text search tables are created.</li>
+ * </ul>
+ * 
+ * A UNIQUE constraint that existing rows violate is not applied: a warning is logged and the column keeps
+ * accepting duplicates until they are removed, for instance from a DatabaseUpgrade observer, and the next
+ * upgrade adds it. Removed nullable columns are kept unless the table is rebuilt. Declared types are not
+ * compared, since SQLite stores any value in any column; convert values yourself, as {@link DateMigration}
+ * does for dates.
+ * {@link DBOpenHelper} runs it on every upgrade when automatic migration is enabled, after the
+ * {@link com.alienlabz.activerecord.event.DatabaseUpgrade} observers, instead of only creating the missing
+ * indexes and full-text search tables.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public final class SchemaMigration {
+	private static final String ID = "_id";
+	private static final String REBUILD_SUFFIX = "_rebuild";
+	private static final String UNIQUE_INDEX_PREFIX = "sqlite_autoindex_";
+
+	private SchemaMigration() {
+	}
+
+	/**
+	 * Migrates the tables of the given classes in one single transaction.
+	 * 
+	 * @param db	the database
+	 * @param classes	the model classes
+	 */
+	public static void migrate(final SQLiteDatabase db, final Collection<Class<?>> classes) {
+		db.beginTransaction();
+		try {
+			for (Class<?> cls : classes) {
+				migrate(db, cls);
+			}
+			db.setTransactionSuccessful();
+		} finally {
+			db.endTransaction();
+		}
+	}
+
+	/**
+	 * Migrates the table of the given class.
+	 * 
+	 * @param db	the database
+	 * @param cls	the model class
+	 */
+	public static void migrate(final SQLiteDatabase db, final Class<?> cls) {
+		final EntityMetadata metadata = EntityMetadata.of(cls);
+		final String table = metadata.getTableName();
+		final Map<String, Boolean> existing = getColumns(db, table);
+
+		if (existing.isEmpty()) {
+			Ln.d("Creating table " + table + ".");
+			db.execSQL(Model.getSQLCreateTable(cls));
+		} else {
+			final Set<String> unique = getUniqueColumns(db, table);
+			final Map<String, String> copied = new LinkedHashMap<String, String>();
+			final Set<String> duplicated = new HashSet<String>();
+			final List<ColumnMetadata> added = new ArrayList<ColumnMetadata>();
+			boolean rebuild = false;
+
+			for (ColumnMetadata column : metadata.getColumns()) {
+				final String name = column.getName();
+				final Boolean notNull = existing.get(name);
+				if (notNull == null) {
+					added.add(column);
+					if (column.isNotNull()) {
+						copied.put(name, getDefault(column));
+					}
+				} else if (column.isNotNull() && !notNull.booleanValue()) {
+					copied.put(name, "COALESCE(" + name + ", " + getDefault(column) + ")");
+				} else {
+					copied.put(name, name);
+				}
+
+				final boolean wasUnique = (notNull != null && unique.contains(name));
+				if (column.isUnique() && !wasUnique && hasDuplicates(db, table, copied.get(name), notNull == null)) {
+					Ln.w("Column " + table + "." + name + " has duplicate values, its UNIQUE constraint is not applied.");
+					duplicated.add(name);
+				} else if (column.isUnique() != wasUnique) {
+					rebuild = true;
+				}
+				if (notNull != null && notNull.booleanValue() != column.isNotNull()) {
+					rebuild = true;
+				}
+			}
+			for (Map.Entry<String, Boolean> column : existing.entrySet()) {
+				if (column.getValue() && !ID.equals(column.getKey()) && metadata.getColumn(column.getKey()) == null) {
+					rebuild = true;
+				}
+			}
+
+			if (rebuild) {
+				rebuild(db, metadata, copied, duplicated);
+			} else {
+				for (ColumnMetadata column : added) {
+					Ln.d("Adding column " + table + "." + column.getName() + ".");
+					db.execSQL("ALTER TABLE " + table + " ADD COLUMN " + column.getSQLDefinition(false)
+							+ (column.isNotNull() ? " DEFAULT " + getDefault(column) : ""));
+				}
+			}
+		}
+
+		for (String index : Model.getSQLCreateIndexes(cls)) {
+			try {
+				db.execSQL(index);
+			} catch (SQLException e) {
+				Ln.w(e, "Could not create index: " + index);
+			}
+		}
+		FullTextSearch.create(db, cls);
+	}
+
+	/**
+	 * Replaces the table with a new one created from the model, copying the rows of the old one. Indexes and
+	 * triggers of the old table are dropped with it.
+	 * 
+	 * @param db	the database
+	 * @param metadata	the class metadata
+	 * @param copied	the expression computing each column of the new table from the old one, by column name;
+	 *            columns left out are NULL
+	 * @param duplicated	the columns whose UNIQUE constraint is not applied
+	 */
+	private static void rebuild(final SQLiteDatabase db, final EntityMetadata metadata,
+			final Map<String, String> copied, final Set<String> duplicated) {
+		final String table = metadata.getTableName();
+		final String rebuilt = table + REBUILD_SUFFIX;
+		Ln.d("Rebuilding table " + table + ".");
+
+		final StringBuilder create = new StringBuilder("CREATE TABLE ");
+		create.append(rebuilt);
+		create.append(" (" + ID + " INTEGER PRIMARY KEY");
+		for (ColumnMetadata column : metadata.getColumns()) {
+			create.append(", ");
+			create.append(column.getSQLDefinition(column.isUnique() && !duplicated.contains(column.getName())));
+		}
+		create.append(");");
+
+		final StringBuilder columns = new StringBuilder(ID);
+		final StringBuilder values = new StringBuilder(ID);
+		for (Map.Entry<String, String> column : copied.entrySet()) {
+			columns.append(", ");
+			columns.append(column.getKey());
+			values.append(", ");
+			values.append(column.getValue());
+		}
+
+		db.execSQL("DROP TABLE IF EXISTS " + rebuilt);
+		db.execSQL(create.toString());
+		db.execSQL("INSERT INTO " + rebuilt + " (" + columns + ") SELECT " + values + " FROM " + table);
+		db.execSQL("DROP TABLE " + table);
+		db.execSQL("ALTER TABLE " + rebuilt + " RENAME TO " + table);
+	}
+
+	/**
+	 * Returns the SQL literal given to the existing rows in a NOT NULL column that had no value: zero for
+	 * numbers, the epoch for dates and an empty string otherwise.
+	 * 
+	 * @param column	the column
+	 * @return	the literal
+	 */
+	private static String getDefault(final ColumnMetadata column) {
+		final String type = column.getConverter().getSQLType();
+		if ("INTEGER".equals(type) || "REAL".equals(type)) {
+			return "0";
+		}
+		if ("DATE".equals(type)) {
+			return "'" + column.getConverter().write(new Date(0)).replace("'", "''") + "'";
+		}
+		return "''";
+	}
+
+	/**
+	 * Returns true whether the rows of the given table would have duplicate non null values in a column.
+	 * 
+	 * @param db	the database
+	 * @param table	the table name
+	 * @param expression	the expression computing the column value from the current row, or null for NULL
+	 * @param constant	whether the expression is a constant, as for new columns
+	 * @return	a boolean
+	 */
+	private static boolean hasDuplicates(final SQLiteDatabase db, final String table, final String expression,
+			final boolean constant) {
+		if (expression == null) {
+			return false;
+		}
+		final String sql = (constant ? "SELECT count(*) > 1 FROM " + table : "SELECT count(*) FROM (SELECT "
+				+ expression + " AS value FROM " + table + " WHERE value IS NOT NULL GROUP BY value HAVING count(*) > 1)");
+		final Cursor cursor = db.rawQuery(sql, null);
+		try {
+			return cursor.moveToFirst() && cursor.getInt(0) > 0;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Reads the columns of the given table.
+	 * 
+	 * @param db	the database
+	 * @param table	the table name
+	 * @return	whether each column is NOT NULL, by column name; empty when the table does not exist
+	 */
+	private static Map<String, Boolean> getColumns(final SQLiteDatabase db, final String table) {
+		final Map<String, Boolean> columns = new LinkedHashMap<String, Boolean>();
+		final Cursor cursor = db.rawQuery("PRAGMA table_info(" + table + ")", null);
+		try {
+			final int name = cursor.getColumnIndex("name");
+			final int notNull = cursor.getColumnIndex("notnull");
+			while (cursor.moveToNext()) {
+				columns.put(cursor.getString(name), cursor.getInt(notNull) == 1);
+			}
+		} finally {
+			cursor.close();
+		}
+		return columns;
+	}
+
+	/**
+	 * Reads the columns of the given table declared UNIQUE, from the indexes SQLite creates for them.
+	 * 
+	 * @param db	the database
+	 * @param table	the table name
+	 * @return	the column names
+	 */
+	private static Set<String> getUniqueColumns(final SQLiteDatabase db, final String table) {
+		final List<String> indexes = new ArrayList<String>();
+		final Cursor list = db.rawQuery("PRAGMA index_list(" + table + ")", null);
+		try {
+			final int name = list.getColumnIndex("name");
+			final int unique = list.getColumnIndex("unique");
+			while (list.moveToNext()) {
+				if (list.getInt(unique) == 1 && list.getString(name).startsWith(UNIQUE_INDEX_PREFIX)) {
+					indexes.add(list.getString(name));
+				}
+			}
+		} finally {
+			list.close();
+		}
+
+		final Set<String> columns = new HashSet<String>();
+		for (String index : indexes) {
+			final Cursor info = db.rawQuery("PRAGMA index_info(" + index + ")", null);
+			try {
+				if (info.getCount() == 1 && info.moveToFirst()) {
+					columns.add(info.getString(info.getColumnIndex("name")));
+				}
+			} finally {
+				info.close();
+			}
+		}
+		return columns;
+	}
+
+}
@@ -0,0 +1,251 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Least recently used cache of the SQL generated for repeated queries.</br>
+ * 
+ * Entries are keyed by the model class and the query template (the kind of statement plus the WHERE clause
+ * given by the caller). Every entry keeps the generated SQL string, so it is built once. Only the single value
+ * queries run through {@link #simpleQueryForLong(SQLiteDatabase, Class, String, SQLFactory, String...)}, such
+ * as counts, also keep their compiled {@link SQLiteStatement}; other statements are compiled by their callers.
+ * WHERE clauses without ? placeholders are not cached, see {@link #isTemplate(String, String[])}.</br>
+ * 
+ * Evicting an entry never waits for a query that is still using it: the entry is only marked as evicted, and
+ * its compiled statement is closed right away when it is idle, or otherwise by the query once it completes,
+ * outside the lock of the cache.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+@Singleton
+public class StatementCache {
+	private final int maxSize;
+	private final Map<String, CachedStatement> entries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	@Inject
+	public StatementCache(final Configuration configuration) {
+		this.maxSize = configuration.getStatementCacheSize();
+		this.entries = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, CachedStatement> eldest) {
+				if (size() > StatementCache.this.maxSize) {
+					eldest.getValue().evict();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Creates the SQL of a cache entry on a cache miss.
+	 */
+	public interface SQLFactory {
+		String create();
+	}
+
+	/**
+	 * Returns true whether the given caller WHERE clause is a template worth caching. Clauses with ?
+	 * placeholders are repeated with other values, while clauses that embed their values as literals would fill
+	 * the cache with entries used only once.
+	 * 
+	 * @param clause	the WHERE clause, or null
+	 * @param params	its parameters
+	 * @return	a boolean
+	 */
+	public static boolean isTemplate(final String clause, final String[] params) {
+		return clause == null || (params != null && params.length > 0);
+	}
+
+	/**
+	 * Returns the SQL cached for the given class and template, generating it on a miss.
+	 * 
+	 * @param cls	the model class
+	 * @param template	the query template
+	 * @param factory	generates the SQL on a miss
+	 * @return	the SQL
+	 */
+	public String getSQL(final Class<?> cls, final String template, final SQLFactory factory) {
+		return getEntry(cls, template, factory).sql;
+	}
+
+	/**
+	 * Executes a query that returns one single number, reusing the statement compiled for the given class and
+	 * template.
+	 * 
+	 * @param database	the database
+	 * @param cls	the model class
+	 * @param template	the query template
+	 * @param factory	generates the SQL on a miss
+	 * @param params	optional parameters
+	 * @return	the query result
+	 */
+	public long simpleQueryForLong(final SQLiteDatabase database, final Class<?> cls, final String template,
+			final SQLFactory factory, final String... params) {
+		return getEntry(cls, template, factory).simpleQueryForLong(database, params);
+	}
+
+	/**
+	 * Executes a query that returns one single number with a statement compiled for this call only, for SQL
+	 * that is not worth caching.
+	 * 
+	 * @param database	the database
+	 * @param sql	the query
+	 * @param params	optional parameters
+	 * @return	the query result
+	 */
+	public static long simpleQueryForLong(final SQLiteDatabase database, final String sql, final String... params) {
+		final SQLiteStatement statement = database.compileStatement(sql);
+		try {
+			bind(statement, params);
+			return statement.simpleQueryForLong();
+		} finally {
+			statement.close();
+		}
+	}
+
+	private static void bind(final SQLiteStatement statement, final String[] params) {
+		statement.clearBindings();
+		if (params != null) {
+			for (int i = 0; i < params.length; i++) {
+				if (params[i] == null) {
+					statement.bindNull(i + 1);
+				} else {
+					statement.bindString(i + 1, params[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Closes every compiled statement and empties the cache. Called before the database is closed.
+	 */
+	public synchronized void clear() {
+		for (CachedStatement entry : entries.values()) {
+			entry.evict();
+		}
+		entries.clear();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	private synchronized CachedStatement getEntry(final Class<?> cls, final String template, final SQLFactory factory) {
+		final String key = cls.getName() + '|' + template;
+		CachedStatement entry = entries.get(key);
+		if (entry == null) {
+			misses.incrementAndGet();
+			entry = new CachedStatement(factory.create());
+			entries.put(key, entry);
+		} else {
+			hits.incrementAndGet();
+		}
+		return entry;
+	}
+
+	/**
+	 * One cached statement. The compiled form is bound to the database it was compiled against, and owned by
+	 * the entry: once the entry is evicted, the statement is closed by whoever is done with it last, the
+	 * eviction when no query is using the entry, or the query that was still using it.
+	 */
+	private static class CachedStatement {
+		private final String sql;
+		private final Lock lock = new ReentrantLock();
+		private SQLiteStatement statement;
+		private SQLiteDatabase database;
+		private volatile boolean evicted;
+
+		CachedStatement(final String sql) {
+			this.sql = sql;
+		}
+
+		long simpleQueryForLong(final SQLiteDatabase database, final String[] params) {
+			lock.lock();
+			try {
+				if (statement == null || this.database != database) {
+					close();
+					statement = database.compileStatement(sql);
+					this.database = database;
+				}
+				bind(statement, params);
+				return statement.simpleQueryForLong();
+			} finally {
+				lock.unlock();
+				if (evicted) {
+					closeIfIdle();
+				}
+			}
+		}
+
+		/**
+		 * Marks the entry as evicted without waiting for a query that is using it, which then closes the
+		 * statement once it completes.
+		 */
+		void evict() {
+			evicted = true;
+			closeIfIdle();
+		}
+
+		private void closeIfIdle() {
+			if (lock.tryLock()) {
+				try {
+					close();
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+
+		private void close() {
+			if (statement != null) {
+				statement.close();
+				statement = null;
+				database = null;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import roboguice.util.Ln;
+
+import com.alienlabz.activerecord.event.TableChanged;
+import com.alienlabz.util.Beans;
+
+/**
+ * Tables changed by one write operation of the {@link DatabaseAccess}.</br>
+ * 
+ * While a write runs, the statements it executes mark the tables they change. Writes nested in it join the
+ * same set, and every table is marked once however many rows are written, so a batch of thousands of rows
+ * yields one single {@link TableChanged} event per table. The events are fired once the write returns, after
+ * its transactions are committed and the database lock is released.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+final class TableChanges {
+	private static final ThreadLocal<TableChanges> current = new ThreadLocal<TableChanges>();
+	private static final Map<String, Pattern> tablePatterns = new ConcurrentHashMap<String, Pattern>();
+
+	private final Set<String> tables = new LinkedHashSet<String>();
+
+	/**
+	 * Registers the table and the join tables of the given model class, so that native SQL statements on them
+	 * are noticed.
+	 * 
+	 * @param metadata	the model metadata
+	 */
+	static void register(final EntityMetadata metadata) {
+		register(metadata.getTableName());
+		for (RelationMetadata relation : metadata.getRelations().values()) {
+			if (relation.isManyToMany()) {
+				register(relation.getJoinTable());
+			}
+		}
+	}
+
+	private static void register(final String tableName) {
+		if (!tablePatterns.containsKey(tableName)) {
+			tablePatterns.put(tableName, Pattern.compile("\\b" + Pattern.quote(tableName) + "\\b",
+					Pattern.CASE_INSENSITIVE));
+		}
+	}
+
+	/**
+	 * Returns true whether the current thread runs a write whose changes are being collected.
+	 * 
+	 * @return	a boolean
+	 */
+	static boolean isCollecting() {
+		return current.get() != null;
+	}
+
+	/**
+	 * Marks the given table as changed by the write running on the current thread. It has no effect outside
+	 * of a write, such as while the database is created or upgraded.
+	 * 
+	 * @param tableName	the table name
+	 */
+	static void mark(final String tableName) {
+		final TableChanges changes = current.get();
+		if (changes != null) {
+			changes.add(tableName);
+		}
+	}
+
+	/**
+	 * Marks every registered table referenced by the given native SQL statement as changed.
+	 * 
+	 * @param sql	the statement
+	 */
+	static void markStatement(final String sql) {
+		final TableChanges changes = current.get();
+		if (changes == null) {
+			return;
+		}
+		for (Map.Entry<String, Pattern> table : tablePatterns.entrySet()) {
+			if (table.getValue().matcher(sql).find()) {
+				changes.add(table.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Collects the tables marked by the current thread until {@link #end()}.
+	 */
+	void begin() {
+		current.set(this);
+	}
+
+	void end() {
+		current.remove();
+	}
+
+	private synchronized void add(final String tableName) {
+		tables.add(tableName);
+	}
+
+	/**
+	 * Fires one {@link TableChanged} event per collected table on the current thread. Failures of the observers
+	 * are logged, since the changes are already committed.
+	 */
+	void publish() {
+		final List<String> changed;
+		synchronized (this) {
+			if (tables.isEmpty()) {
+				return;
+			}
+			changed = new ArrayList<String>(tables);
+			tables.clear();
+		}
+		for (String tableName : changed) {
+			try {
+				Beans.getEventManager().fire(new TableChanged(tableName));
+			} catch (RuntimeException e) {
+				Ln.e(e, "Observer of table " + tableName + " failed.");
+			}
+		}
+	}
+
+}
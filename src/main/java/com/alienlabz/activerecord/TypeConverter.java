@@ -0,0 +1,73 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Converts values between a Java field type and its database column representation.</br>
+ *
+ * One converter is resolved per column when the {@link EntityMetadata} of a class is built, so mapping a row
+ * does not need to inspect the field type again.
+ *
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public interface TypeConverter {
+
+	/**
+	 * Returns the SQL data type used to declare the column.
+	 *
+	 * @return	a String
+	 */
+	String getSQLType();
+
+	/**
+	 * Returns true whether this converter is able to read values from a cursor.
+	 *
+	 * @return	a boolean
+	 */
+	boolean isReadable();
+
+	/**
+	 * Reads the value stored at the given cursor position.
+	 *
+	 * @param cursor	the cursor
+	 * @param index	the column index
+	 * @return	the value, ready to be assigned to the field
+	 */
+	Object read(Cursor cursor, int index);
+
+	/**
+	 * Binds the given field value to a statement parameter with its native storage class, without creating
+	 * an intermediate String for numbers. Null values are bound as NULL.
+	 *
+	 * @param statement	the statement
+	 * @param index	the parameter index, starting at 1
+	 * @param value	the field value
+	 */
+	void bind(SQLiteStatement statement, int index, Object value);
+
+	/**
+	 * Converts the given field value to its column representation.
+	 *
+	 * @param value	the field value
+	 * @return	a String
+	 */
+	String write(Object value);
+
+}
@@ -0,0 +1,401 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import java.util.Date;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+
+import com.alienlabz.util.DateUtils;
+import com.alienlabz.util.Reflection;
+
+/**
+ * Built-in {@link TypeConverter} implementations.
+ *
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+final class TypeConverters {
+
+	// http://www.sqlite.org/datatype3.html#datetime
+	// http://en.wikipedia.org/wiki/ISO_8601
+	static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+	private TypeConverters() {
+	}
+
+	/**
+	 * Resolves the converter associated with the given Java field type, storing dates as text.
+	 *
+	 * @param type	the field type
+	 * @return	the converter
+	 */
+	static TypeConverter forType(final Class<?> type) {
+		return forType(type, DateStorage.TEXT);
+	}
+
+	/**
+	 * Resolves the converter associated with the given Java field type, storing dates with the given strategy.
+	 *
+	 * @param type	the field type
+	 * @param dateStorage	how dates are stored
+	 * @return	the converter
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	static TypeConverter forType(final Class<?> type, final DateStorage dateStorage) {
+		final TypeConverter converter;
+		if (type.equals(Boolean.class) || type.equals(boolean.class)) {
+			converter = BOOLEAN;
+		} else if (type.equals(Date.class)) {
+			converter = (dateStorage == DateStorage.EPOCH_MILLIS ? EPOCH_DATE : DATE);
+		} else if (type.equals(Integer.class) || type.equals(int.class)) {
+			converter = INTEGER;
+		} else if (type.equals(Long.class) || type.equals(long.class)) {
+			converter = LONG;
+		} else if (type.equals(Float.class) || type.equals(float.class)) {
+			converter = FLOAT;
+		} else if (type.equals(Short.class) || type.equals(short.class)) {
+			converter = SHORT;
+		} else if (type.equals(Double.class) || type.equals(double.class)) {
+			converter = DOUBLE;
+		} else if (type.equals(String.class)) {
+			converter = STRING;
+		} else if (type.isEnum()) {
+			converter = new EnumConverter((Class<Enum>) type);
+		} else if (Model.class.isAssignableFrom(type)) {
+			converter = new ReferenceConverter((Class<? extends Model>) type);
+		} else {
+			converter = new UnmappedConverter(getSQLType(type));
+		}
+		return converter;
+	}
+
+	/**
+	 * Returns the SQL data type associated with a Java type that has no converter of its own.
+	 *
+	 * @param type	the field type
+	 * @return	a String
+	 */
+	private static String getSQLType(final Class<?> type) {
+		final String cls = type.getSimpleName().toLowerCase();
+		if (cls.equals("byte")) {
+			return "INTEGER";
+		}
+		return "TEXT";
+	}
+
+	/**
+	 * Base class for converters of values that are written as their plain string representation.
+	 */
+	private static abstract class PlainConverter implements TypeConverter {
+		private final String sqlType;
+
+		PlainConverter(final String sqlType) {
+			this.sqlType = sqlType;
+		}
+
+		public String getSQLType() {
+			return sqlType;
+		}
+
+		public boolean isReadable() {
+			return true;
+		}
+
+		public String write(final Object value) {
+			return value == null ? "" : value.toString();
+		}
+
+		public void bind(final SQLiteStatement statement, final int index, final Object value) {
+			if (value == null) {
+				statement.bindNull(index);
+			} else {
+				statement.bindString(index, value.toString());
+			}
+		}
+	}
+
+	/**
+	 * Integral numbers, bound as INTEGER.
+	 */
+	private static abstract class IntegralConverter extends PlainConverter {
+		IntegralConverter() {
+			super("INTEGER");
+		}
+
+		@Override
+		public void bind(final SQLiteStatement statement, final int index, final Object value) {
+			if (value == null) {
+				statement.bindNull(index);
+			} else {
+				statement.bindLong(index, ((Number) value).longValue());
+			}
+		}
+	}
+
+	/**
+	 * Floating point numbers, bound as REAL.
+	 */
+	private static abstract class RealConverter extends PlainConverter {
+		RealConverter() {
+			super("REAL");
+		}
+
+		@Override
+		public void bind(final SQLiteStatement statement, final int index, final Object value) {
+			if (value == null) {
+				statement.bindNull(index);
+			} else {
+				statement.bindDouble(index, ((Number) value).doubleValue());
+			}
+		}
+	}
+
+	static final TypeConverter STRING = new PlainConverter("TEXT") {
+		public Object read(final Cursor cursor, final int index) {
+			return cursor.getString(index);
+		}
+	};
+
+	static final TypeConverter INTEGER = new IntegralConverter() {
+		public Object read(final Cursor cursor, final int index) {
+			return !cursor.isNull(index) ? cursor.getInt(index) : null;
+		}
+	};
+
+	static final TypeConverter LONG = new IntegralConverter() {
+		public Object read(final Cursor cursor, final int index) {
+			return !cursor.isNull(index) ? cursor.getLong(index) : null;
+		}
+	};
+
+	static final TypeConverter SHORT = new IntegralConverter() {
+		public Object read(final Cursor cursor, final int index) {
+			return !cursor.isNull(index) ? cursor.getShort(index) : null;
+		}
+	};
+
+	static final TypeConverter DOUBLE = new RealConverter() {
+		public Object read(final Cursor cursor, final int index) {
+			return !cursor.isNull(index) ? cursor.getDouble(index) : null;
+		}
+	};
+
+	static final TypeConverter FLOAT = new RealConverter() {
+		public Object read(final Cursor cursor, final int index) {
+			return !cursor.isNull(index) ? cursor.getFloat(index) : null;
+		}
+	};
+
+	static final TypeConverter BOOLEAN = new PlainConverter("INTEGER") {
+		public Object read(final Cursor cursor, final int index) {
+			final int value = (!cursor.isNull(index) ? cursor.getInt(index) : 0);
+			return value == 1;
+		}
+
+		@Override
+		public String write(final Object value) {
+			String resValue = null;
+			if (value instanceof Boolean) {
+				resValue = ((Boolean) value).booleanValue() ? "1" : "0";
+			}
+			return resValue;
+		}
+
+		@Override
+		public void bind(final SQLiteStatement statement, final int index, final Object value) {
+			if (value instanceof Boolean) {
+				statement.bindLong(index, ((Boolean) value).booleanValue() ? 1 : 0);
+			} else {
+				statement.bindNull(index);
+			}
+		}
+	};
+
+	static final TypeConverter DATE = new PlainConverter("DATE") {
+		public Object read(final Cursor cursor, final int index) {
+			final String value = cursor.getString(index);
+			return (!cursor.isNull(index) && value != null ? DateUtils.format(value, DATE_FORMAT) : null);
+		}
+
+		@Override
+		public String write(final Object value) {
+			String resValue = null;
+			if (value instanceof Date) {
+				resValue = DateUtils.format((Date) value, DATE_FORMAT);
+			}
+			return resValue;
+		}
+
+		@Override
+		public void bind(final SQLiteStatement statement, final int index, final Object value) {
+			if (value instanceof Date) {
+				statement.bindString(index, DateUtils.format((Date) value, DATE_FORMAT));
+			} else {
+				statement.bindNull(index);
+			}
+		}
+	};
+
+	static final TypeConverter EPOCH_DATE = new PlainConverter("DATE") {
+		public Object read(final Cursor cursor, final int index) {
+			return !cursor.isNull(index) ? new Date(cursor.getLong(index)) : null;
+		}
+
+		@Override
+		public String write(final Object value) {
+			String resValue = null;
+			if (value instanceof Date) {
+				resValue = String.valueOf(((Date) value).getTime());
+			}
+			return resValue;
+		}
+
+		@Override
+		public void bind(final SQLiteStatement statement, final int index, final Object value) {
+			if (value instanceof Date) {
+				statement.bindLong(index, ((Date) value).getTime());
+			} else {
+				statement.bindNull(index);
+			}
+		}
+	};
+
+	/**
+	 * Stores enumerations by their ordinal.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final class EnumConverter extends PlainConverter {
+		private final Enum[] constants;
+
+		EnumConverter(final Class<Enum> type) {
+			super("INTEGER");
+			this.constants = type.getEnumConstants();
+		}
+
+		public Object read(final Cursor cursor, final int index) {
+			if (cursor.isNull(index)) {
+				return null;
+			}
+			final int ordinal = cursor.getInt(index);
+			return (ordinal >= 0 && ordinal < constants.length ? constants[ordinal] : null);
+		}
+
+		@Override
+		public String write(final Object value) {
+			String resValue = null;
+			if (value != null) {
+				resValue = String.valueOf(((Enum) value).ordinal());
+			}
+			return resValue;
+		}
+
+		@Override
+		public void bind(final SQLiteStatement statement, final int index, final Object value) {
+			if (value == null) {
+				statement.bindNull(index);
+			} else {
+				statement.bindLong(index, ((Enum) value).ordinal());
+			}
+		}
+	}
+
+	/**
+	 * Belongs-to references, stored as the id of the referenced model. Reading a reference yields the model
+	 * held by the identity map of its class, or else an instance that only carries the id until it is fetched.
+	 */
+	static final class ReferenceConverter extends IntegralConverter {
+		private final Class<? extends Model> type;
+
+		ReferenceConverter(final Class<? extends Model> type) {
+			this.type = type;
+		}
+
+		Class<? extends Model> getType() {
+			return type;
+		}
+
+		public Object read(final Cursor cursor, final int index) {
+			if (cursor.isNull(index)) {
+				return null;
+			}
+			final Integer id = cursor.getInt(index);
+			final EntityCache cache = EntityMetadata.of(type).getCache();
+			if (cache != null) {
+				final Model cached = cache.peek(id);
+				if (cached != null) {
+					return cached;
+				}
+			}
+			final Model reference = Reflection.instantiate(type);
+			reference._id = id;
+			return reference;
+		}
+
+		@Override
+		public String write(final Object value) {
+			final Integer id = getId(value);
+			return id == null ? null : id.toString();
+		}
+
+		@Override
+		public void bind(final SQLiteStatement statement, final int index, final Object value) {
+			final Integer id = getId(value);
+			if (id == null) {
+				statement.bindNull(index);
+			} else {
+				statement.bindLong(index, id);
+			}
+		}
+
+		private static Integer getId(final Object value) {
+			return value == null ? null : ((Model) value)._id;
+		}
+	}
+
+	/**
+	 * Columns whose type has no mapping: the column is declared, but never read nor written.
+	 */
+	private static final class UnmappedConverter implements TypeConverter {
+		private final String sqlType;
+
+		UnmappedConverter(final String sqlType) {
+			this.sqlType = sqlType;
+		}
+
+		public String getSQLType() {
+			return sqlType;
+		}
+
+		public boolean isReadable() {
+			return false;
+		}
+
+		public Object read(final Cursor cursor, final int index) {
+			return null;
+		}
+
+		public String write(final Object value) {
+			return null;
+		}
+
+		public void bind(final SQLiteStatement statement, final int index, final Object value) {
+			statement.bindNull(index);
+		}
+	}
+
+}
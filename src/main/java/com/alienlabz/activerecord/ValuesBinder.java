@@ -0,0 +1,40 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord;
+
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Binds the column values of one model class to statement parameters without reflection.</br>
+ * 
+ * Implementations are generated at compile time together with the {@link RowMapper} of the class.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ * @param <T>	the model type
+ */
+public interface ValuesBinder<T extends Model> {
+
+	/**
+	 * Binds every column value of the model to the parameters 1 to n of the statement, in column order.
+	 * 
+	 * @param statement	the statement
+	 * @param columns	the columns
+	 * @param model	the model
+	 */
+	void bind(SQLiteStatement statement, ColumnMetadata[] columns, T model);
+
+}
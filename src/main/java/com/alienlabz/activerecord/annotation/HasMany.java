@@ -0,0 +1,45 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maps a collection field to the models whose foreign key column refers to the owner. The element type is
+ * taken from the field's generic type, as in List&lt;Child&gt;.</br>
+ * 
+ * The collection is loaded lazily: it stays null until the relation is fetched or included in a query. It is
+ * never saved along with the owner; the children are saved on their own.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface HasMany {
+
+	/**
+	 * The column of the child table that holds the owner id, usually a field of the owner type. Defaults to
+	 * the owner class simple name with its first letter in lower case.
+	 */
+	String foreignKey() default "";
+
+}
@@ -0,0 +1,62 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Keeps the instances of the annotated model class in memory, keyed by id, so that
+ * {@link com.alienlabz.activerecord.Model#load(Class, Integer)} is served without querying the database
+ * again.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface IdentityMap {
+
+	/**
+	 * How cached instances are referenced.
+	 */
+	enum References {
+		/** Instances stay cached until evicted. */
+		STRONG,
+		/** Instances may be reclaimed by the garbage collector when memory runs low. */
+		SOFT,
+		/** Instances may be reclaimed as soon as the application stops referencing them. */
+		WEAK
+	}
+
+	/**
+	 * Maximum number of cached instances.
+	 */
+	int maxSize() default 256;
+
+	/**
+	 * When true, the least recently used instance is evicted when the map is full; otherwise the oldest
+	 * cached one is.
+	 */
+	boolean lru() default true;
+
+	References references() default References.STRONG;
+
+}
@@ -0,0 +1,48 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Creates an index on the annotated field's column, so that queries filtering or ordering by it do not scan
+ * the whole table. Indexes on several columns are declared at class level, inside {@link Indexes}.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Index {
+
+	/**
+	 * The index name. Defaults to the table name followed by the column names and "_idx".
+	 */
+	String name() default "";
+
+	/**
+	 * The indexed columns, in order. Only used inside {@link Indexes}: on a field, the field's column is indexed.
+	 */
+	String[] columns() default {};
+
+	boolean unique() default false;
+
+}
@@ -0,0 +1,45 @@
+/*
+ *  Copyright 2012 AlienLabZ
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.alienlabz.activerecord.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Maps a collection field to models linked to the owner through a join table with owner_id and target_id
+ * columns. The element type is taken from the field's generic type, as in Set&lt;Tag&gt;.</br>
+ * 
+ * The collection is loaded lazily: it stays null until the relation is fetched or included in a query. When
+ * the owner is saved with a non null collection, the links are replaced by the saved members of the
+ * collection.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface ManyToMany {
+
+	/**
+	 * The join table name. Defaults to the owner table name, an underscore and the field name.
+	 */
+	String joinTable() default "";
+
+}
@@ -0,0 +1,43 @@
+/*
+ * AlienDroid Framework - ActiveRecord Module.
+ * Copyright (C) 2012 AlienLabZ
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.alienlabz.activerecord.event;
+
+/**
+ * Catch this event if you want to know when the rows of a table have
+ * changed. It is fired once per table after each write operation commits,
+ * however many rows it wrote.
+ * 
+ * @author Marlon Silva Carvalho
+ * @since 1.0.0
+ */
+public class TableChanged {
+	private String tableName;
+
+	public TableChanged(String tableName) {
+		this.setTableName(tableName);
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	public void setTableName(String tableName) {
+		this.tableName = tableName;
+	}
+
+}
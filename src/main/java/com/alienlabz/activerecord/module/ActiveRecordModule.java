@@ -1,9 +1,14 @@
 package com.alienlabz.activerecord.module;
 
+import roboguice.util.Ln;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
+import android.os.Bundle;
 
+import com.alienlabz.activerecord.ConcurrencyMode;
+import com.alienlabz.activerecord.Configuration;
+import com.alienlabz.activerecord.DateStorage;
 import com.alienlabz.activerecord.DBOpenHelper;
 import com.alienlabz.annotation.Module;
 import com.google.inject.AbstractModule;
@@ -12,6 +17,7 @@ import com.google.inject.Provides;
 @Module
 public class ActiveRecordModule extends AbstractModule {
 	private static DBOpenHelper dbOpenHelper;
+	private static Configuration configuration;
 	private Context context;
 	
 	public ActiveRecordModule(final Context context) {
@@ -39,8 +45,53 @@ public class ActiveRecordModule extends AbstractModule {
 			dbname = "database.sqlite";
 			version = 1;
 		}
-		dbOpenHelper = new DBOpenHelper(context, dbname, null, version);
+		final boolean wal = provideConfiguration().getConcurrencyMode() == ConcurrencyMode.WAL;
+		dbOpenHelper = new DBOpenHelper(context, dbname, null, version, wal);
 		return dbOpenHelper;
 	}
 
+	@Provides
+	public Configuration provideConfiguration() {
+		if (configuration != null) {
+			return configuration;
+		}
+
+		configuration = new Configuration();
+		try {
+			final ApplicationInfo ai = context.getPackageManager().getApplicationInfo(context.getPackageName(),
+					PackageManager.GET_META_DATA);
+			final Bundle metaData = ai.metaData;
+			if (metaData.containsKey("CONCURRENCY_MODE")) {
+				configuration.setConcurrencyMode(ConcurrencyMode.valueOf(metaData.getString("CONCURRENCY_MODE")));
+			}
+			if (metaData.containsKey("WRITE_QUEUE_SIZE")) {
+				configuration.setWriteQueueSize(metaData.getInt("WRITE_QUEUE_SIZE"));
+			}
+			if (metaData.containsKey("BATCH_CHUNK_SIZE")) {
+				configuration.setBatchChunkSize(metaData.getInt("BATCH_CHUNK_SIZE"));
+			}
+			if (metaData.containsKey("STATEMENT_CACHE_SIZE")) {
+				configuration.setStatementCacheSize(metaData.getInt("STATEMENT_CACHE_SIZE"));
+			}
+			if (metaData.containsKey("DATE_STORAGE")) {
+				configuration.setDateStorage(DateStorage.valueOf(metaData.getString("DATE_STORAGE")));
+			}
+			if (metaData.containsKey("ASYNC_READ_THREADS")) {
+				configuration.setAsyncReadThreads(metaData.getInt("ASYNC_READ_THREADS"));
+			}
+			if (metaData.containsKey("ASYNC_QUEUE_SIZE")) {
+				configuration.setAsyncQueueSize(metaData.getInt("ASYNC_QUEUE_SIZE"));
+			}
+			if (metaData.containsKey("MODEL_REGISTRY")) {
+				configuration.setModelRegistry(metaData.getString("MODEL_REGISTRY"));
+			}
+			if (metaData.containsKey("AUTOMATIC_MIGRATION")) {
+				configuration.setAutomaticMigration(metaData.getBoolean("AUTOMATIC_MIGRATION"));
+			}
+		} catch (Throwable e) {
+			Ln.d("Using default ActiveRecord configuration.");
+		}
+		return configuration;
+	}
+
 }